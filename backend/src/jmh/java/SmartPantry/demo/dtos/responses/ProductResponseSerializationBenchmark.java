@@ -0,0 +1,59 @@
+package SmartPantry.demo.dtos.responses;
+
+import SmartPantry.demo.entities.enums.ExpiryStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of the product listing body, as returned by {@code GET /api/v1/products}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ProductResponseSerializationBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    private int size;
+
+    private ObjectMapper objectMapper;
+    private List<ProductResponse> products;
+
+    @Setup
+    public void setUp() {
+        objectMapper = JsonMapper.builder().build();
+
+        ExpiryStatus[] statuses = ExpiryStatus.values();
+        LocalDate today = LocalDate.now();
+        products = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            products.add(ProductResponse.builder()
+                    .id((long) i)
+                    .name("Product " + i)
+                    .expirationDate(today.plusDays(i % 30))
+                    .quantity(1 + i % 5)
+                    .categoryName(i % 2 == 0 ? "Dairy" : null)
+                    .categoryId(i % 2 == 0 ? 1L : null)
+                    .expiryStatus(statuses[i % statuses.length])
+                    .daysRemaining(i % 30)
+                    .build());
+        }
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return objectMapper.writeValueAsBytes(products);
+    }
+}
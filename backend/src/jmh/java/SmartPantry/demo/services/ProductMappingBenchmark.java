@@ -0,0 +1,84 @@
+package SmartPantry.demo.services;
+
+import SmartPantry.demo.dtos.responses.ProductResponse;
+import SmartPantry.demo.entities.Category;
+import SmartPantry.demo.entities.Product;
+import SmartPantry.demo.entities.enums.ExpiryStatus;
+import SmartPantry.demo.repositories.CategoryRepository;
+import SmartPantry.demo.repositories.CollectionVersionRepository;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-product cost of {@link ProductService#mapToResponse} and {@link ProductService#calculateExpiryStatus},
+ * measured over a batch spread across all three expiry statuses, with and without a category.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ProductMappingBenchmark {
+
+    private static final int BATCH = 1_000;
+
+    private ProductService productService;
+    private Product[] products;
+    private long[] daysRemaining;
+
+    @Setup
+    public void setUp() {
+        Category category = Category.builder().id(1L).name("Dairy").build();
+        CategoryRepository categoryRepository = Mockito.mock(CategoryRepository.class);
+        Mockito.when(categoryRepository.findAll()).thenReturn(List.of(category));
+        CategoryCache categoryCache = new CategoryCache(categoryRepository,
+                Mockito.mock(CollectionVersionRepository.class), new LocalCacheInvalidationChannel(),
+                Mockito.mock(PlatformTransactionManager.class));
+        productService = new ProductService(null, null, categoryCache, null, null, null, null, null, null, null);
+
+        LocalDate today = LocalDate.now();
+        products = new Product[BATCH];
+        daysRemaining = new long[BATCH];
+        for (int i = 0; i < BATCH; i++) {
+            int offset = i % 30 - 10;
+            products[i] = Product.builder()
+                    .id((long) i)
+                    .name("Product " + i)
+                    .expirationDate(today.plusDays(offset))
+                    .quantity(1 + i % 5)
+                    .entryDate(today)
+                    .category(i % 2 == 0 ? category : null)
+                    .build();
+            daysRemaining[i] = offset;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void mapToResponse(Blackhole blackhole) {
+        for (Product product : products) {
+            ProductResponse response = productService.mapToResponse(product);
+            blackhole.consume(response);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void calculateExpiryStatus(Blackhole blackhole) {
+        for (long days : daysRemaining) {
+            ExpiryStatus status = productService.calculateExpiryStatus(days);
+            blackhole.consume(status);
+        }
+    }
+}
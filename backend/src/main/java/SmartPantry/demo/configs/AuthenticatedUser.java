@@ -0,0 +1,20 @@
+package SmartPantry.demo.configs;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Lightweight principal built from the claims of a verified JWT.
+ * Carries everything request handling needs about the caller without a user-table lookup.
+ */
+@Getter
+@AllArgsConstructor
+public class AuthenticatedUser {
+    private final Long id;
+    private final String username;
+
+    @Override
+    public String toString() {
+        return username;
+    }
+}
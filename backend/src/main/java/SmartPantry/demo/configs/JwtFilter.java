@@ -1,5 +1,6 @@
 package SmartPantry.demo.configs;
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.*;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
@@ -13,10 +14,13 @@ import org.springframework.stereotype.Component;
 
 import java.io.IOException;
 import java.util.Collections;
+import java.util.Optional;
 
 @Component
 public class JwtFilter implements Filter {
 
+    private static final String EVENTS_PATH = "/api/v1/products/events";
+
     @Autowired
     private JwtUtil jwtUtil;
 
@@ -40,42 +44,44 @@ public class JwtFilter implements Filter {
                     return;
                 }
 
-                if (path.startsWith("/api/v1/auth") || path.equals("/api/v1/health") ||
+                if (path.startsWith("/api/v1/auth") || path.equals("/api/v1/health") || path.equals("/actuator/health") ||
                     path.startsWith("/swagger") || path.startsWith("/v3/api-docs") ||
                     path.equals("/swagger-ui.html") || path.equals("/")) {
                     chain.doFilter(request, response);
                     return;
                 }
 
+                String token = null;
                 String authHeader = httpRequest.getHeader("Authorization");
-                if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+                if (authHeader != null && authHeader.startsWith("Bearer ")) {
+                    token = authHeader.substring(7);
+                } else if (path.equals(EVENTS_PATH)) {
+                    // Browsers cannot set headers on an EventSource, so the event stream also takes the token as a parameter
+                    token = httpRequest.getParameter("access_token");
+                }
+                if (token == null || token.isEmpty()) {
                     httpResponse.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Missing or invalid Authorization header");
                     return;
                 }
 
-                String token = authHeader.substring(7);
-                if (!jwtUtil.validateToken(token)) {
+                Optional<Claims> claims = jwtUtil.parseClaims(token);
+                if (claims.isEmpty()) {
                     httpResponse.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Invalid or expired token");
                     return;
                 }
 
-                Long userId = jwtUtil.extractId(token);
-                String username = jwtUtil.extractName(token);
-                
-                // Set custom UserContext
-                UserContext.setCurrentUserId(userId);
-                UserContext.setCurrentUsername(username);
+                AuthenticatedUser user = new AuthenticatedUser(
+                        claims.get().get("id", Long.class), claims.get().get("name", String.class));
 
-                // IMPORTANT: Set Spring Security context so authorizeHttpRequests passes
+                // IMPORTANT: Set Spring Security context so authorizeHttpRequests passes and UserContext can read the caller
                 UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
-                        username, null, Collections.singletonList(new SimpleGrantedAuthority("ROLE_USER")));
+                        user, null, Collections.singletonList(new SimpleGrantedAuthority("ROLE_USER")));
                 authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(httpRequest));
                 SecurityContextHolder.getContext().setAuthentication(authentication);
             }
 
             chain.doFilter(request, response);
         } finally {
-            UserContext.clear();
             SecurityContextHolder.clearContext();
         }
     }
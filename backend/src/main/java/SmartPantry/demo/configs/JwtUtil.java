@@ -1,13 +1,23 @@
 package SmartPantry.demo.configs;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
 
 @Component
 public class JwtUtil {
@@ -18,8 +28,20 @@ public class JwtUtil {
     @Value("${jwt.expiration}")
     private Long expiration;
 
-    private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(secret.getBytes());
+    // Number of verified tokens kept so repeat requests skip signature verification; 0 disables
+    @Value("${jwt.cache.max-size:10000}")
+    private int cacheMaxSize;
+
+    private SecretKey signingKey;
+    private JwtParser parser;
+    // Read without locking on every authenticated request; only eviction takes the lock, and never blocks on it
+    private final Map<String, VerifiedToken> verifiedTokens = new ConcurrentHashMap<>();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    @PostConstruct
+    void init() {
+        signingKey = Keys.hmacShaKeyFor(secret.getBytes());
+        parser = Jwts.parser().verifyWith(signingKey).build();
     }
 
     public String generateToken(Long id, String name) {
@@ -31,37 +53,88 @@ public class JwtUtil {
                 .claim("name", name)
                 .issuedAt(now)
                 .expiration(expiryDate)
-                .signWith(getSigningKey())
+                .signWith(signingKey)
                 .compact();
     }
 
+    /**
+     * Verifies a token and returns its claims.
+     * Tokens verified earlier are served from a size-bounded cache until they expire.
+     *
+     * @param token the compact JWT
+     * @return the token's claims, or empty if the token is malformed, forged or expired
+     */
+    public Optional<Claims> parseClaims(String token) {
+        VerifiedToken cached = verifiedTokens.get(token);
+        if (cached != null) {
+            if (System.currentTimeMillis() < cached.expiresAt) {
+                cached.lastUsed = System.nanoTime();
+                return Optional.of(cached.claims);
+            }
+            verifiedTokens.remove(token, cached);
+            return Optional.empty();
+        }
+
+        Claims claims;
+        try {
+            claims = parser.parseSignedClaims(token).getPayload();
+        } catch (JwtException | IllegalArgumentException e) {
+            return Optional.empty();
+        }
+        if (cacheMaxSize > 0 && claims.getExpiration() != null) {
+            verifiedTokens.put(token, new VerifiedToken(claims, claims.getExpiration().getTime()));
+            evictIfOverBudget();
+        }
+        return Optional.of(claims);
+    }
+
     public Long extractId(String token) {
-        Claims claims = Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
-        return claims.get("id", Long.class);
+        return parseClaims(token).map(claims -> claims.get("id", Long.class)).orElse(null);
     }
 
     public String extractName(String token) {
-        Claims claims = Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
-        return claims.get("name", String.class);
+        return parseClaims(token).map(claims -> claims.get("name", String.class)).orElse(null);
     }
 
     public boolean validateToken(String token) {
+        return parseClaims(token).isPresent();
+    }
+
+    /**
+     * Drops expired tokens, then the least recently used ones until the cache is a tenth below its budget, so a
+     * full cache does not sort its tokens on every login. One caller evicts while the others carry on.
+     */
+    private void evictIfOverBudget() {
+        if (verifiedTokens.size() <= cacheMaxSize || !evictionLock.tryLock()) {
+            return;
+        }
         try {
-            Jwts.parser()
-                    .verifyWith(getSigningKey())
-                    .build()
-                    .parseSignedClaims(token);
-            return true;
-        } catch (Exception e) {
-            return false;
+            long now = System.currentTimeMillis();
+            verifiedTokens.values().removeIf(token -> token.expiresAt <= now);
+            int target = cacheMaxSize - cacheMaxSize / 10;
+            List<Map.Entry<String, VerifiedToken>> coldestFirst = new ArrayList<>(verifiedTokens.entrySet());
+            coldestFirst.sort(Comparator.comparingLong(entry -> entry.getValue().lastUsed));
+            for (Map.Entry<String, VerifiedToken> entry : coldestFirst) {
+                if (verifiedTokens.size() <= target) {
+                    break;
+                }
+                verifiedTokens.remove(entry.getKey(), entry.getValue());
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    // Keyed by the full token rather than a digest, so a hash collision can never return another token's claims
+    private static final class VerifiedToken {
+
+        private final Claims claims;
+        private final long expiresAt;
+        private volatile long lastUsed = System.nanoTime();
+
+        private VerifiedToken(Claims claims, long expiresAt) {
+            this.claims = claims;
+            this.expiresAt = expiresAt;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,98 @@
+package SmartPantry.demo.configs;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends the connections of read-only transactions to a replica and everything else to the primary.
+ * <p>
+ * The decision is made when a transaction first needs a physical connection, so this must sit behind a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}: by then the transaction's
+ * read-only flag is known. Work outside a transaction, such as schema setup, always uses the primary.
+ * A user who committed a write keeps reading from the primary for a sticky window, long enough for the
+ * replica to catch up, so they always see their own writes. The window is tracked per node.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Target {
+        PRIMARY, REPLICA
+    }
+
+    private final long stickyNanos;
+    // User id to the System.nanoTime() until which their reads stay on the primary
+    private final Map<Long, Long> stickyUntil = new ConcurrentHashMap<>();
+    private final AtomicLong lastPurge = new AtomicLong(System.nanoTime());
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica, long stickyMillis) {
+        this.stickyNanos = TimeUnit.MILLISECONDS.toNanos(stickyMillis);
+        setTargetDataSources(Map.of(Target.PRIMARY, primary, Target.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return route(UserContext.getCurrentUserId());
+    }
+
+    /**
+     * Decides where the current transaction's connection comes from, recording a write by {@code userId}.
+     */
+    Target route(Long userId) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            return Target.PRIMARY;
+        }
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (userId != null) {
+                markWrite(userId);
+            }
+            return Target.PRIMARY;
+        }
+        return userId != null && isSticky(userId) ? Target.PRIMARY : Target.REPLICA;
+    }
+
+    /**
+     * Pins a user's reads to the primary from now, and again from the commit of the current transaction,
+     * so reads running alongside a long write are covered as well as the ones after it.
+     */
+    private void markWrite(Long userId) {
+        stick(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    stick(userId);
+                }
+            });
+        }
+    }
+
+    private void stick(Long userId) {
+        long now = System.nanoTime();
+        stickyUntil.put(userId, now + stickyNanos);
+        // Users who never read again would otherwise stay in the map; drop expired entries once per window
+        long last = lastPurge.get();
+        if (now - last >= stickyNanos && lastPurge.compareAndSet(last, now)) {
+            stickyUntil.values().removeIf(until -> until - now < 0);
+        }
+    }
+
+    private boolean isSticky(Long userId) {
+        Long until = stickyUntil.get(userId);
+        if (until == null) {
+            return false;
+        }
+        if (until - System.nanoTime() < 0) {
+            stickyUntil.remove(userId, until);
+            return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,41 @@
+package SmartPantry.demo.configs;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Hibernate {@link StatementInspector} that counts the SQL statements prepared on the current thread
+ * while a count is open. {@link SqlStatementCountingFilter} opens one per HTTP request, so each request
+ * reports how many statements it issued. Registered through
+ * {@code spring.jpa.properties.hibernate.session_factory.statement_inspector}.
+ */
+public class SqlStatementCounter implements StatementInspector {
+
+    private static final ThreadLocal<int[]> count = new ThreadLocal<>();
+
+    @Override
+    public String inspect(String sql) {
+        int[] current = count.get();
+        if (current != null) {
+            current[0]++;
+        }
+        return sql;
+    }
+
+    /**
+     * Starts counting the statements prepared on this thread.
+     */
+    public static void start() {
+        count.set(new int[1]);
+    }
+
+    /**
+     * Stops counting on this thread.
+     *
+     * @return the statements prepared since {@link #start()}, or 0 if no count was open
+     */
+    public static int stop() {
+        int[] current = count.get();
+        count.remove();
+        return current != null ? current[0] : 0;
+    }
+}
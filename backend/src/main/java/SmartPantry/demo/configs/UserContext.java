@@ -1,27 +1,30 @@
 package SmartPantry.demo.configs;
 
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+/**
+ * Read access to the caller authenticated by {@link JwtFilter}.
+ * Backed by the Spring Security context, so a request carries a single thread-local holding an
+ * immutable principal, set and cleared by the security filter chain.
+ */
 public class UserContext {
-    private static final ThreadLocal<Long> currentUserId = new ThreadLocal<>();
-    private static final ThreadLocal<String> currentUsername = new ThreadLocal<>();
 
-    public static void setCurrentUserId(Long id) {
-        currentUserId.set(id);
+    public static AuthenticatedUser getCurrentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof AuthenticatedUser user) {
+            return user;
+        }
+        return null;
     }
 
     public static Long getCurrentUserId() {
-        return currentUserId.get();
-    }
-
-    public static void setCurrentUsername(String username) {
-        currentUsername.set(username);
+        AuthenticatedUser user = getCurrentUser();
+        return user != null ? user.getId() : null;
     }
 
     public static String getCurrentUsername() {
-        return currentUsername.get();
-    }
-
-    public static void clear() {
-        currentUserId.remove();
-        currentUsername.remove();
+        AuthenticatedUser user = getCurrentUser();
+        return user != null ? user.getUsername() : null;
     }
-}
\ No newline at end of file
+}
@@ -3,8 +3,10 @@ package SmartPantry.demo.controllers;
 import SmartPantry.demo.dtos.requests.LoginRequest;
 import SmartPantry.demo.dtos.requests.RegisterRequest;
 import SmartPantry.demo.dtos.responses.AuthResponse;
+import SmartPantry.demo.services.LoginThrottle;
 import SmartPantry.demo.services.interfaces.IAuthService;
 import SmartPantry.demo.configs.UserContext;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 
@@ -21,15 +23,22 @@ import org.springframework.web.bind.annotation.RestController;
 public class AuthController {
 
     private final IAuthService authService;
+    private final LoginThrottle loginThrottle;
 
     @PostMapping("/register")
-    public ResponseEntity<Void> register(@Valid @RequestBody RegisterRequest registerRequest) {
+    public ResponseEntity<Void> register(
+            @Valid @RequestBody RegisterRequest registerRequest,
+            HttpServletRequest request) {
+        loginThrottle.checkRegistration(request.getRemoteAddr());
         authService.register(registerRequest);
         return ResponseEntity.status(HttpStatus.CREATED).build();
     }
 
     @PostMapping("/login")
-    public ResponseEntity<AuthResponse> login(@Valid @RequestBody LoginRequest loginRequest) {
+    public ResponseEntity<AuthResponse> login(
+            @Valid @RequestBody LoginRequest loginRequest,
+            HttpServletRequest request) {
+        loginThrottle.checkLogin(request.getRemoteAddr(), loginRequest.getUsername());
         return ResponseEntity.ok(authService.login(loginRequest));
     }
 
@@ -0,0 +1,46 @@
+package SmartPantry.demo.controllers;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.function.Supplier;
+
+/**
+ * Conditional GET support for collection endpoints. The ETag is derived from a collection version
+ * that is cheap to read, so a matching {@code If-None-Match} is answered with 304 Not Modified
+ * before any row is loaded or serialized.
+ */
+final class ConditionalResponses {
+
+    // Responses are per user and must be revalidated before reuse; revalidation is what the ETag makes cheap
+    static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
+    private ConditionalResponses() {
+    }
+
+    /**
+     * Answers 304 if the client holds the representation of {@code version}, otherwise 200 with the body.
+     *
+     * @param request the current request, checked for {@code If-None-Match}
+     * @param version the version of the collection, read before the body
+     * @param body loads the response body; only called when the client's copy is stale
+     */
+    static <T> ResponseEntity<T> ifNoneMatch(WebRequest request, String version, Supplier<T> body) {
+        String etag = "W/\"" + version + "\"";
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag)
+                    .cacheControl(REVALIDATE)
+                    .varyBy(HttpHeaders.AUTHORIZATION)
+                    .build();
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(REVALIDATE)
+                .varyBy(HttpHeaders.AUTHORIZATION)
+                .body(body.get());
+    }
+}
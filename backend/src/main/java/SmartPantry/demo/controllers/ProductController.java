@@ -1,17 +1,40 @@
 package SmartPantry.demo.controllers;
 
+import SmartPantry.demo.configs.UserContext;
+import SmartPantry.demo.dtos.requests.ImportMode;
+import SmartPantry.demo.dtos.requests.ProductFilter;
+import SmartPantry.demo.dtos.requests.ProductOperation;
 import SmartPantry.demo.dtos.requests.ProductRequest;
+import SmartPantry.demo.dtos.requests.QuantityChangeRequest;
+import SmartPantry.demo.dtos.responses.BulkImportResponse;
+import SmartPantry.demo.dtos.responses.ProductBatchResponse;
+import SmartPantry.demo.dtos.responses.ProductChangesResponse;
+import SmartPantry.demo.dtos.responses.ProductPageResponse;
 import SmartPantry.demo.dtos.responses.ProductResponse;
+import SmartPantry.demo.dtos.responses.ProductSummaryResponse;
 import SmartPantry.demo.entities.enums.ExpiryStatus;
+import SmartPantry.demo.services.ProductCsv;
+import SmartPantry.demo.services.ProductEventBus;
 import SmartPantry.demo.services.interfaces.IProductService;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import tools.jackson.databind.ObjectMapper;
 
 @RestController
 @RequestMapping("/api/v1/products")
@@ -20,10 +43,97 @@ import org.springframework.web.bind.annotation.*;
 public class ProductController {
 
     private final IProductService productService;
+    private final ObjectMapper objectMapper;
+    private final ProductEventBus productEventBus;
 
     @GetMapping
-    public ResponseEntity<List<ProductResponse>> getAll() {
-        return ResponseEntity.ok(productService.getAllForCurrentUser());
+    public ResponseEntity<List<ProductResponse>> getAll(@ModelAttribute ProductFilter filter, WebRequest request) {
+        return ConditionalResponses.ifNoneMatch(request, productService.getCollectionVersion(),
+                () -> productService.getAllForCurrentUser(filter));
+    }
+
+    @GetMapping(params = "limit")
+    public ResponseEntity<ProductPageResponse> getPage(
+            @RequestParam int limit,
+            @RequestParam(required = false) String cursor,
+            @ModelAttribute ProductFilter filter,
+            WebRequest request) {
+        // Pages are keyed on expiration date and id; filtering or re-sorting them is not supported
+        if (filter.hasCriteria()) {
+            throw new IllegalArgumentException("limit cannot be combined with filters or sort");
+        }
+        return ConditionalResponses.ifNoneMatch(request, productService.getCollectionVersion(),
+                () -> productService.getPageForCurrentUser(cursor, limit));
+    }
+
+    @GetMapping("/changes")
+    public ResponseEntity<ProductChangesResponse> getChanges(@RequestParam(required = false) String since) {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noStore())
+                .body(productService.getChangesForCurrentUser(since));
+    }
+
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter events() {
+        return productEventBus.subscribe(UserContext.getCurrentUserId(), productService.getCollectionVersion());
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void stream(HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        OutputStream output = response.getOutputStream();
+        productService.streamForCurrentUser(product -> {
+            try {
+                output.write(objectMapper.writeValueAsBytes(product));
+                output.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        output.flush();
+    }
+
+    @GetMapping("/export")
+    public void export(
+            @RequestParam(defaultValue = "csv") String format,
+            HttpServletResponse response) throws IOException {
+        boolean csv = switch (format.toLowerCase()) {
+            case "csv" -> true;
+            case "ndjson" -> false;
+            default -> throw new IllegalArgumentException("Unsupported export format: " + format);
+        };
+        if (csv) {
+            response.setContentType("text/csv;charset=UTF-8");
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"products.csv\"");
+        } else {
+            response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"products.ndjson\"");
+        }
+        OutputStream output = response.getOutputStream();
+        if (csv) {
+            output.write((ProductCsv.HEADER + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+        productService.streamForCurrentUser(product -> {
+            try {
+                if (csv) {
+                    output.write(ProductCsv.toLine(product).getBytes(StandardCharsets.UTF_8));
+                } else {
+                    output.write(objectMapper.writeValueAsBytes(product));
+                }
+                output.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        output.flush();
+    }
+
+    @GetMapping("/summary")
+    public ResponseEntity<ProductSummaryResponse> getSummary(
+            @RequestParam(defaultValue = "5") int upcoming,
+            WebRequest request) {
+        return ConditionalResponses.ifNoneMatch(request, productService.getCollectionVersion(),
+                () -> productService.getSummaryForCurrentUser(upcoming));
     }
 
     @GetMapping("/{id}")
@@ -38,6 +148,29 @@ public class ProductController {
                 productService.create(productRequest));
     }
 
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<BulkImportResponse> importJson(
+            @RequestBody List<ProductRequest> productRequests,
+            @RequestParam(defaultValue = "ALL_OR_NOTHING") ImportMode mode) {
+        return toImportResponse(productService.importProducts(productRequests, mode));
+    }
+
+    @PostMapping(value = "/bulk", consumes = "text/csv")
+    public ResponseEntity<BulkImportResponse> importCsv(
+            @RequestBody String csv,
+            @RequestParam(defaultValue = "ALL_OR_NOTHING") ImportMode mode) {
+        return toImportResponse(productService.importProducts(ProductCsv.read(csv), mode));
+    }
+
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ProductBatchResponse> batch(
+            @RequestBody List<ProductOperation> operations,
+            @RequestParam(defaultValue = "ALL_OR_NOTHING") ImportMode mode) {
+        ProductBatchResponse result = productService.applyBatch(operations, mode);
+        boolean rejected = mode == ImportMode.ALL_OR_NOTHING && result.getApplied() < result.getReceived();
+        return ResponseEntity.status(rejected ? HttpStatus.BAD_REQUEST : HttpStatus.OK).body(result);
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<ProductResponse> update(
             @PathVariable Long id,
@@ -45,6 +178,23 @@ public class ProductController {
         return ResponseEntity.ok(productService.update(id, productRequest));
     }
 
+    @PatchMapping("/{id}/consume")
+    public ResponseEntity<ProductResponse> consume(
+            @PathVariable Long id,
+            @Valid @RequestBody QuantityChangeRequest request) {
+        // A product used up entirely is deleted
+        return productService.consume(id, request.getAmount())
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.noContent().build());
+    }
+
+    @PatchMapping("/{id}/restock")
+    public ResponseEntity<ProductResponse> restock(
+            @PathVariable Long id,
+            @Valid @RequestBody QuantityChangeRequest request) {
+        return ResponseEntity.ok(productService.restock(id, request.getAmount()));
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> delete(@PathVariable Long id) {
         productService.delete(id);
@@ -56,4 +206,16 @@ public class ProductController {
             @PathVariable ExpiryStatus status) {
         return ResponseEntity.ok(productService.getByStatus(status));
     }
+
+    private ResponseEntity<BulkImportResponse> toImportResponse(BulkImportResponse result) {
+        HttpStatus status;
+        if (result.getErrors().isEmpty()) {
+            status = HttpStatus.CREATED;
+        } else if (result.getMode() == ImportMode.ALL_OR_NOTHING) {
+            status = HttpStatus.BAD_REQUEST;
+        } else {
+            status = HttpStatus.OK;
+        }
+        return ResponseEntity.status(status).body(result);
+    }
 }
@@ -0,0 +1,36 @@
+package SmartPantry.demo.dtos.notifications;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * One expiry notification for a user, listing every product that became due since the last one.
+ * The idempotency key is derived from the user, the run date and the product ids, so a resend of
+ * the same digest always carries the same key.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class NotificationDigest {
+    private String idempotencyKey;
+    private Long userId;
+    private String username;
+    private String email;
+    private LocalDate date;
+    private List<Item> items;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Item {
+        private Long productId;
+        private String name;
+        private LocalDate expirationDate;
+    }
+}
@@ -0,0 +1,33 @@
+package SmartPantry.demo.dtos.notifications;
+
+import SmartPantry.demo.dtos.responses.ProductResponse;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A change to a user's products, pushed to their open event streams once it has committed.
+ * The version is the collection version token after the change, the same one served as an ETag,
+ * so a client that missed events can catch up with a delta read from the last version it saw.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductEvent {
+    private Type type;
+    private String version;
+    private Long productId;
+    private ProductResponse product;
+
+    public enum Type {
+        /** Sent once when a stream opens, carrying the current version. */
+        READY,
+        CREATED,
+        UPDATED,
+        DELETED,
+        /** Too much changed to describe one product at a time, such as an import or a new day; reload. */
+        RESYNC
+    }
+}
@@ -0,0 +1,11 @@
+package SmartPantry.demo.dtos.requests;
+
+/**
+ * How a bulk import treats rows that fail validation, and a batch request operations that cannot be applied.
+ */
+public enum ImportMode {
+    // Any invalid row rejects the whole import
+    ALL_OR_NOTHING,
+    // Valid rows are imported and invalid rows are reported back
+    PARTIAL
+}
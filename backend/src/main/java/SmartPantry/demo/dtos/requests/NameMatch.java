@@ -0,0 +1,11 @@
+package SmartPantry.demo.dtos.requests;
+
+/**
+ * How the name filter of a product search is matched against the product and category names, ignoring case.
+ */
+public enum NameMatch {
+    // The name contains the search text anywhere
+    CONTAINS,
+    // The name starts with the search text
+    PREFIX
+}
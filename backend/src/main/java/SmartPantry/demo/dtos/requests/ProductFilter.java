@@ -0,0 +1,44 @@
+package SmartPantry.demo.dtos.requests;
+
+import SmartPantry.demo.entities.enums.ExpiryStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+
+/**
+ * Optional, combinable criteria of the product listing. Unset fields do not filter.
+ * {@code sort} is a property name optionally followed by a direction, e.g. {@code name,desc}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductFilter {
+    private ExpiryStatus status;
+    private Long categoryId;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate expiresFrom;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate expiresTo;
+
+    private String name;
+
+    @Builder.Default
+    private NameMatch nameMatch = NameMatch.CONTAINS;
+
+    private String sort;
+
+    /**
+     * Whether any filter or sort is set. The name match only counts alongside a name.
+     */
+    public boolean hasCriteria() {
+        return status != null || categoryId != null || expiresFrom != null || expiresTo != null
+                || (name != null && !name.isBlank()) || (sort != null && !sort.isBlank());
+    }
+}
@@ -0,0 +1,24 @@
+package SmartPantry.demo.dtos.requests;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductOperation {
+    private ProductOperationType op;
+
+    private Long id;
+
+    // Required for UPDATE
+    private ProductRequest product;
+
+    // Required for ADJUST_QUANTITY
+    @Min(-100_000)
+    @Max(100_000)
+    private Integer quantityDelta;
+}
@@ -0,0 +1,12 @@
+package SmartPantry.demo.dtos.requests;
+
+/**
+ * What one entry of a batch request does to its product.
+ */
+public enum ProductOperationType {
+    // Replaces every field with the given product, as PUT does
+    UPDATE,
+    DELETE,
+    // Adds quantityDelta, which may be negative, to the quantity
+    ADJUST_QUANTITY
+}
@@ -25,4 +25,7 @@ public class ProductRequest {
     private int quantity;
 
     private Long categoryId;
+
+    // The lockVersion the client last read; when set, an update is rejected once the product has moved past it
+    private Long lockVersion;
 }
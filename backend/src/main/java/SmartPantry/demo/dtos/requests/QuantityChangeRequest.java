@@ -0,0 +1,16 @@
+package SmartPantry.demo.dtos.requests;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class QuantityChangeRequest {
+    @Min(1)
+    @Max(100_000)
+    private int amount;
+}
@@ -0,0 +1,18 @@
+package SmartPantry.demo.dtos.responses;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BulkImportError {
+    // 1-based position of the row in the submitted array or CSV data lines
+    private int row;
+    private List<String> messages;
+}
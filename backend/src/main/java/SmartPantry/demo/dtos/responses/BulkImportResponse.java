@@ -0,0 +1,20 @@
+package SmartPantry.demo.dtos.responses;
+
+import SmartPantry.demo.dtos.requests.ImportMode;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BulkImportResponse {
+    private ImportMode mode;
+    private int received;
+    private int imported;
+    private List<BulkImportError> errors;
+}
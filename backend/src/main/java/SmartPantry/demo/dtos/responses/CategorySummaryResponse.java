@@ -0,0 +1,17 @@
+package SmartPantry.demo.dtos.responses;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CategorySummaryResponse {
+    private Long categoryId;
+    private String categoryName;
+    private long count;
+    private long quantity;
+}
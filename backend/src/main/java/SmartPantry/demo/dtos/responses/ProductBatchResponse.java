@@ -0,0 +1,21 @@
+package SmartPantry.demo.dtos.responses;
+
+import SmartPantry.demo.dtos.requests.ImportMode;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductBatchResponse {
+    private ImportMode mode;
+    private int received;
+    private int applied;
+    // One result per submitted operation, in submission order
+    private List<ProductOperationResult> results;
+}
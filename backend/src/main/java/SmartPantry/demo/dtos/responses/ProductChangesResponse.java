@@ -0,0 +1,21 @@
+package SmartPantry.demo.dtos.responses;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductChangesResponse {
+    // Pass as `since` on the next request
+    private String version;
+    // True when `changed` is the whole collection and the client must drop what it holds
+    private boolean full;
+    private List<ProductResponse> changed;
+    private List<Long> deleted;
+}
@@ -0,0 +1,35 @@
+package SmartPantry.demo.dtos.responses;
+
+import SmartPantry.demo.dtos.requests.ProductOperationType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductOperationResult {
+    // 1-based position of the operation in the submitted array
+    private int index;
+    private Long id;
+    private ProductOperationType op;
+    private Outcome outcome;
+    // The product after an applied update or quantity adjustment
+    private ProductResponse product;
+    private List<String> messages;
+
+    public enum Outcome {
+        APPLIED,
+        INVALID,
+        // The product does not exist or belongs to another user
+        NOT_FOUND,
+        // An update naming a lock version the product has moved past
+        CONFLICT,
+        // Valid, but not applied because another operation failed an all-or-nothing batch
+        SKIPPED
+    }
+}
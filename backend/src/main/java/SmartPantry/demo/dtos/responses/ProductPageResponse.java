@@ -0,0 +1,17 @@
+package SmartPantry.demo.dtos.responses;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductPageResponse {
+    private List<ProductResponse> items;
+    private String nextCursor;
+}
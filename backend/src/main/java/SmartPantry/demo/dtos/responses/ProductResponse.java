@@ -21,4 +21,6 @@ public class ProductResponse {
     private Long categoryId;
     private ExpiryStatus expiryStatus;
     private long daysRemaining;
+    // Send back in a ProductRequest to update only if nobody else has written the product since
+    private long lockVersion;
 }
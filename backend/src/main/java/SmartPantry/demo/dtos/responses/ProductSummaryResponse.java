@@ -0,0 +1,20 @@
+package SmartPantry.demo.dtos.responses;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductSummaryResponse {
+    private long totalCount;
+    private long totalQuantity;
+    private List<StatusSummaryResponse> byStatus;
+    private List<CategorySummaryResponse> byCategory;
+    private List<ProductResponse> expiringNext;
+}
@@ -0,0 +1,17 @@
+package SmartPantry.demo.dtos.responses;
+
+import SmartPantry.demo.entities.enums.ExpiryStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StatusSummaryResponse {
+    private ExpiryStatus status;
+    private long count;
+    private long quantity;
+}
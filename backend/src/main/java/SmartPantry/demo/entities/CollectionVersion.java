@@ -0,0 +1,26 @@
+package SmartPantry.demo.entities;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Change counter of a collection, such as one user's products or the category list.
+ * Every write to the collection increments it in the writer's transaction, so it doubles as the
+ * validator of conditional GETs and as the position of a delta read.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "collection_versions")
+public class CollectionVersion {
+
+    @Id
+    private String name;
+
+    private long version;
+}
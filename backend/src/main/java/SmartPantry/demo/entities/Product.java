@@ -2,33 +2,43 @@ package SmartPantry.demo.entities;
 
 import SmartPantry.demo.entities.enums.ExpiryStatus;
 import jakarta.persistence.*;
-import jakarta.validation.constraints.FutureOrPresent;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import java.time.LocalDate;
+import org.hibernate.annotations.ColumnDefault;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
 @Entity
-@Table(name = "products")
+@Table(name = "products", indexes = {
+        @Index(name = "idx_products_user_expiration_date", columnList = "user_id, expiration_date"),
+        @Index(name = "idx_products_user_category", columnList = "user_id, category_id"),
+        @Index(name = "idx_products_notified_expiration_date", columnList = "notified, expiration_date"),
+        @Index(name = "idx_products_next_transition_date", columnList = "next_transition_date"),
+        @Index(name = "idx_products_user_change_version", columnList = "user_id, change_version")
+})
 public class Product {
 
+    // Pooled sequence: one round trip reserves 50 ids, which lets Hibernate batch inserts
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "products_seq")
+    @SequenceGenerator(name = "products_seq", sequenceName = "products_seq", allocationSize = 50)
     private Long id;
 
     @NotBlank
     private String name;
 
+    // Only new dates are checked to lie ahead (ProductRequest); a stored product may well be expired
     @NotNull
-    @FutureOrPresent
     private LocalDate expirationDate;
 
     @Builder.Default
@@ -42,10 +52,15 @@ public class Product {
     @Builder.Default
     private boolean notified = false;
 
+    // Lazy: left out of toString/equals so printing or comparing an entity never loads it, in or out of a session
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
 
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "category_id")
     private Category category;
@@ -53,4 +68,16 @@ public class Product {
     @Enumerated(EnumType.STRING)
     @Builder.Default
     private ExpiryStatus expiryStatus = ExpiryStatus.GREEN;
+
+    // Date on which expiryStatus next changes; null once the product is RED
+    private LocalDate nextTransitionDate;
+
+    // Version of the owner's product collection at the last write; null for rows written before versioning
+    private Long changeVersion;
+
+    // Optimistic lock, incremented by every write to this row, including conditional quantity updates
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private long lockVersion;
 }
@@ -0,0 +1,8 @@
+package SmartPantry.demo.exceptions;
+
+public class ConflictException extends RuntimeException {
+
+    public ConflictException(String message) {
+        super(message);
+    }
+}
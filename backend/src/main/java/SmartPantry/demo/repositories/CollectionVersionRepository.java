@@ -0,0 +1,26 @@
+package SmartPantry.demo.repositories;
+
+import SmartPantry.demo.entities.CollectionVersion;
+import java.util.Optional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface CollectionVersionRepository extends JpaRepository<CollectionVersion, String> {
+
+    // Takes the row lock that serializes writers of the collection until their transaction ends
+    @Modifying
+    @Query("UPDATE CollectionVersion v SET v.version = v.version + 1 WHERE v.name = :name")
+    int increment(@Param("name") String name);
+
+    @Modifying
+    @Query(value = "INSERT INTO collection_versions (name, version) SELECT :name, 0 "
+            + "WHERE NOT EXISTS (SELECT 1 FROM collection_versions WHERE name = :name)", nativeQuery = true)
+    int createIfAbsent(@Param("name") String name);
+
+    @Query("SELECT v.version FROM CollectionVersion v WHERE v.name = :name")
+    Optional<Long> findVersion(@Param("name") String name);
+}
@@ -3,24 +3,223 @@ package SmartPantry.demo.repositories;
 import SmartPantry.demo.entities.Category;
 import SmartPantry.demo.entities.Product;
 import SmartPantry.demo.entities.User;
+import SmartPantry.demo.entities.enums.ExpiryStatus;
+import SmartPantry.demo.repositories.projections.NotificationCandidate;
+import SmartPantry.demo.repositories.projections.ProductSummaryRow;
+import SmartPantry.demo.repositories.projections.ProductView;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, ProductSearchRepository {
+
+    // Listing rows as DTO projections: one statement with the category joined, no entities loaded
+    String VIEW_SELECT = "SELECT new SmartPantry.demo.repositories.projections.ProductView("
+            + "p.id, p.name, p.expirationDate, p.quantity, c.id, c.name, p.lockVersion) "
+            + "FROM Product p LEFT JOIN p.category c ";
 
     // User-specific queries
-    List<Product> findByUser(User user);
-    List<Product> findByUserAndCategory(User user, Category category);
+
+    // Targets of a batch request; ids of other users simply do not match
+    @Query("SELECT p FROM Product p WHERE p.user = :user AND p.id IN :ids")
+    List<Product> findAllByUserAndIdIn(@Param("user") User user, @Param("ids") Collection<Long> ids);
+
+    // Quantity changes as single conditional statements, so concurrent ones cannot overwrite each other.
+    // They bump the lock version, so a full update that read the row before fails instead of undoing them.
+    // A quantity never drops to zero: taking all that is left deletes the row instead.
+    @Modifying
+    @Query("UPDATE Product p SET p.quantity = p.quantity - :amount, p.lockVersion = p.lockVersion + 1, "
+            + "p.changeVersion = :changeVersion "
+            + "WHERE p.id = :id AND p.user.id = :userId AND p.quantity > :amount")
+    int consume(@Param("id") Long id, @Param("userId") Long userId, @Param("amount") int amount,
+                @Param("changeVersion") long changeVersion);
+
+    @Modifying
+    @Query("DELETE FROM Product p WHERE p.id = :id AND p.user.id = :userId AND p.quantity = :amount")
+    int consumeAll(@Param("id") Long id, @Param("userId") Long userId, @Param("amount") int amount);
+
+    @Modifying
+    @Query("UPDATE Product p SET p.quantity = p.quantity + :amount, p.lockVersion = p.lockVersion + 1, "
+            + "p.changeVersion = :changeVersion "
+            + "WHERE p.id = :id AND p.user.id = :userId AND p.quantity <= :max - :amount")
+    int restock(@Param("id") Long id, @Param("userId") Long userId, @Param("amount") int amount,
+                @Param("max") int max, @Param("changeVersion") long changeVersion);
+
+    // A batch quantity adjustment, applied only at the lock version whose quantity the batch checked the bounds on
+    @Modifying
+    @Query("UPDATE Product p SET p.quantity = p.quantity + :delta, p.lockVersion = p.lockVersion + 1, "
+            + "p.changeVersion = :changeVersion "
+            + "WHERE p.id = :id AND p.user.id = :userId AND p.lockVersion = :lockVersion")
+    int adjustQuantity(@Param("id") Long id, @Param("userId") Long userId, @Param("delta") int delta,
+                       @Param("lockVersion") long lockVersion, @Param("changeVersion") long changeVersion);
+
+    @Modifying
+    @Query("DELETE FROM Product p WHERE p.user = :user AND p.id IN :ids")
+    int deleteAllByUserAndIdIn(@Param("user") User user, @Param("ids") Collection<Long> ids);
+
+    @Query(VIEW_SELECT + "WHERE p.user = :user")
+    List<ProductView> findViewsByUser(@Param("user") User user);
+
+    @Query(VIEW_SELECT + "WHERE p.user = :user AND p.category = :category")
+    List<ProductView> findViewsByUserAndCategory(@Param("user") User user, @Param("category") Category category);
 
     // Status-based queries for User
-    List<Product> findByUserAndExpirationDateBefore(User user, LocalDate date);
-    List<Product> findByUserAndExpirationDateBetween(User user, LocalDate start,
-                                                     LocalDate end);
-    List<Product> findByUserAndExpirationDateAfter(User user, LocalDate date);
+    @Query(VIEW_SELECT + "WHERE p.user = :user AND p.expirationDate < :date")
+    List<ProductView> findViewsByUserAndExpirationDateBefore(@Param("user") User user, @Param("date") LocalDate date);
+
+    @Query(VIEW_SELECT + "WHERE p.user = :user AND p.expirationDate BETWEEN :start AND :end")
+    List<ProductView> findViewsByUserAndExpirationDateBetween(@Param("user") User user,
+                                                              @Param("start") LocalDate start,
+                                                              @Param("end") LocalDate end);
+
+    @Query(VIEW_SELECT + "WHERE p.user = :user AND p.expirationDate > :date")
+    List<ProductView> findViewsByUserAndExpirationDateAfter(@Param("user") User user, @Param("date") LocalDate date);
+
+    // Delta reads: rows written after a version of the owner's collection
+    @Query(VIEW_SELECT + "WHERE p.user = :user AND p.changeVersion > :version")
+    List<ProductView> findViewsByUserChangedSince(@Param("user") User user, @Param("version") long version);
+
+    // Keyset pagination ordered by (expirationDate, id)
+    @Query(VIEW_SELECT + "WHERE p.user = :user ORDER BY p.expirationDate, p.id")
+    List<ProductView> findFirstPageByUser(@Param("user") User user, Limit limit);
+
+    @Query(VIEW_SELECT + "WHERE p.user = :user AND (p.expirationDate > :expirationDate "
+            + "OR (p.expirationDate = :expirationDate AND p.id > :id)) "
+            + "ORDER BY p.expirationDate, p.id")
+    List<ProductView> findPageByUserAfter(@Param("user") User user,
+                                          @Param("expirationDate") LocalDate expirationDate,
+                                          @Param("id") Long id, Limit limit);
+
+    // Streaming read of a user's products; must be consumed inside a transaction
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query(VIEW_SELECT + "WHERE p.user = :user ORDER BY p.expirationDate, p.id")
+    Stream<ProductView> streamByUser(@Param("user") User user);
+
+    // Pantry summary: counts and quantities per expiry bucket and category in a single grouped query.
+    // Buckets come from the expiration date as of :today, not the stored status; bucketing happens in a
+    // derived table so the parameterized CASE is not repeated in GROUP BY
+    @Query("SELECT new SmartPantry.demo.repositories.projections.ProductSummaryRow("
+            + "b.status, b.categoryId, b.categoryName, COUNT(*), COALESCE(SUM(b.quantity), 0)) "
+            + "FROM (SELECT CASE WHEN p.expirationDate < :today THEN 'RED' "
+            + "WHEN p.expirationDate <= :alertEnd THEN 'YELLOW' ELSE 'GREEN' END AS status, "
+            + "c.id AS categoryId, c.name AS categoryName, p.quantity AS quantity "
+            + "FROM Product p LEFT JOIN p.category c WHERE p.user = :user) b "
+            + "GROUP BY b.status, b.categoryId, b.categoryName "
+            + "ORDER BY b.categoryName")
+    List<ProductSummaryRow> summarizeByUser(@Param("user") User user, @Param("today") LocalDate today,
+                                            @Param("alertEnd") LocalDate alertEnd);
+
+    @Query(VIEW_SELECT + "WHERE p.user = :user AND p.expirationDate >= :today ORDER BY p.expirationDate, p.id")
+    List<ProductView> findUpcomingByUser(@Param("user") User user, @Param("today") LocalDate today, Limit limit);
 
     // Global queries for Scheduled Tasks
-    List<Product> findByExpirationDateBeforeAndNotifiedFalse(LocalDate date);
+
+    // Products due for an expiry notification, keyset-paginated by (owner, id) so each owner's rows are contiguous.
+    // Read from the primary: a lagging replica would build digests from old dates for rows markNotified then marks
+    @Query("SELECT new SmartPantry.demo.repositories.projections.NotificationCandidate("
+            + "p.id, u.id, u.username, u.email, p.name, p.expirationDate) "
+            + "FROM Product p JOIN p.user u "
+            + "WHERE p.notified = false AND p.expirationDate < :before "
+            + "AND (u.id > :userId OR (u.id = :userId AND p.id > :id)) "
+            + "ORDER BY u.id, p.id")
+    List<NotificationCandidate> findDueForNotification(@Param("before") LocalDate before,
+                                                       @Param("userId") Long userId,
+                                                       @Param("id") Long id, Limit limit);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Product p SET p.notified = true WHERE p.id IN :ids AND p.notified = false")
+    int markNotified(@Param("ids") Collection<Long> ids);
+
+    // Set-based status transitions for the expiry sweep (no entities are loaded),
+    // bounded to an id range so partitions can run in parallel
+    @Query("SELECT MIN(p.id) FROM Product p")
+    Long findMinId();
+
+    @Query("SELECT MAX(p.id) FROM Product p")
+    Long findMaxId();
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Product p "
+            + "SET p.expiryStatus = SmartPantry.demo.entities.enums.ExpiryStatus.RED, "
+            + "p.nextTransitionDate = NULL "
+            + "WHERE p.id BETWEEN :minId AND :maxId "
+            + "AND p.expiryStatus = :from AND p.expirationDate < :today")
+    int markExpired(@Param("minId") Long minId, @Param("maxId") Long maxId,
+                    @Param("from") ExpiryStatus from, @Param("today") LocalDate today);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Product p "
+            + "SET p.expiryStatus = SmartPantry.demo.entities.enums.ExpiryStatus.YELLOW, "
+            + "p.nextTransitionDate = p.expirationDate + 1 day "
+            + "WHERE p.id BETWEEN :minId AND :maxId "
+            + "AND p.expiryStatus = :from AND p.expirationDate BETWEEN :today AND :end")
+    int markExpiring(@Param("minId") Long minId, @Param("maxId") Long maxId,
+                     @Param("from") ExpiryStatus from, @Param("today") LocalDate today,
+                     @Param("end") LocalDate end);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Product p "
+            + "SET p.expiryStatus = SmartPantry.demo.entities.enums.ExpiryStatus.GREEN, "
+            + "p.nextTransitionDate = p.expirationDate - 7 day "
+            + "WHERE p.id BETWEEN :minId AND :maxId "
+            + "AND p.expiryStatus = :from AND p.expirationDate > :end")
+    int markFresh(@Param("minId") Long minId, @Param("maxId") Long maxId,
+                  @Param("from") ExpiryStatus from, @Param("end") LocalDate end);
+
+    // Horizon variants: only rows whose next status boundary has been reached
+    @Transactional
+    @Modifying
+    @Query("UPDATE Product p "
+            + "SET p.expiryStatus = SmartPantry.demo.entities.enums.ExpiryStatus.RED, "
+            + "p.nextTransitionDate = NULL "
+            + "WHERE p.id BETWEEN :minId AND :maxId AND p.nextTransitionDate <= :today "
+            + "AND p.expiryStatus = :from AND p.expirationDate < :today")
+    int markDueExpired(@Param("minId") Long minId, @Param("maxId") Long maxId,
+                       @Param("from") ExpiryStatus from, @Param("today") LocalDate today);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Product p "
+            + "SET p.expiryStatus = SmartPantry.demo.entities.enums.ExpiryStatus.YELLOW, "
+            + "p.nextTransitionDate = p.expirationDate + 1 day "
+            + "WHERE p.id BETWEEN :minId AND :maxId AND p.nextTransitionDate <= :today "
+            + "AND p.expiryStatus = :from AND p.expirationDate BETWEEN :today AND :end")
+    int markDueExpiring(@Param("minId") Long minId, @Param("maxId") Long maxId,
+                        @Param("from") ExpiryStatus from, @Param("today") LocalDate today,
+                        @Param("end") LocalDate end);
+
+    // Backfill for rows persisted before the transition horizon existed
+    @Transactional
+    @Modifying
+    @Query("UPDATE Product p SET p.nextTransitionDate = p.expirationDate + 1 day "
+            + "WHERE p.id BETWEEN :minId AND :maxId AND p.nextTransitionDate IS NULL "
+            + "AND p.expiryStatus = SmartPantry.demo.entities.enums.ExpiryStatus.YELLOW "
+            + "AND p.expirationDate BETWEEN :today AND :end")
+    int stampMissingExpiringHorizon(@Param("minId") Long minId, @Param("maxId") Long maxId,
+                                    @Param("today") LocalDate today, @Param("end") LocalDate end);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Product p SET p.nextTransitionDate = p.expirationDate - 7 day "
+            + "WHERE p.id BETWEEN :minId AND :maxId AND p.nextTransitionDate IS NULL "
+            + "AND p.expiryStatus = SmartPantry.demo.entities.enums.ExpiryStatus.GREEN "
+            + "AND p.expirationDate > :end")
+    int stampMissingFreshHorizon(@Param("minId") Long minId, @Param("maxId") Long maxId,
+                                 @Param("end") LocalDate end);
 }
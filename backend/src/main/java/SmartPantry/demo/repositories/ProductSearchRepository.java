@@ -0,0 +1,31 @@
+package SmartPantry.demo.repositories;
+
+import SmartPantry.demo.dtos.requests.ProductFilter;
+import SmartPantry.demo.entities.User;
+import SmartPantry.demo.repositories.projections.ProductView;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Product listing built at runtime from whichever filters a request sets, as a single statement.
+ */
+public interface ProductSearchRepository {
+
+    // Properties a search can be sorted by; id is always appended as the tie-breaker
+    Set<String> SORTABLE_PROPERTIES = Set.of("expirationDate", "name", "quantity", "categoryName");
+
+    /**
+     * Lists a user's products matching every set filter of {@code filter}. The name filter matches
+     * the product name, or products in one of {@code nameMatchingCategories}.
+     *
+     * @param nameMatchingCategories the categories whose name matches the name filter, resolved by the caller
+     * @param today the reference date of the status filter
+     * @param sort orders on {@link #SORTABLE_PROPERTIES}
+     */
+    List<ProductView> search(User user, ProductFilter filter, Collection<Long> nameMatchingCategories,
+                             LocalDate today, Sort sort);
+}
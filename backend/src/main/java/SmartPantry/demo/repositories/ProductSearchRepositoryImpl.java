@@ -0,0 +1,99 @@
+package SmartPantry.demo.repositories;
+
+import SmartPantry.demo.dtos.requests.NameMatch;
+import SmartPantry.demo.dtos.requests.ProductFilter;
+import SmartPantry.demo.entities.Category;
+import SmartPantry.demo.entities.Product;
+import SmartPantry.demo.entities.User;
+import SmartPantry.demo.repositories.projections.ProductView;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Criteria implementation of {@link ProductSearchRepository}. The name filter compares
+ * {@code lower(name)} so PostgreSQL can answer it from the trigram index in
+ * {@code db/postgresql-indexes.sql}, ORed with the ids of the categories whose name matches;
+ * elsewhere the user predicate keeps the scan to one pantry.
+ */
+@RequiredArgsConstructor
+public class ProductSearchRepositoryImpl implements ProductSearchRepository {
+
+    private static final char LIKE_ESCAPE = '\\';
+
+    private final EntityManager entityManager;
+
+    @Override
+    public List<ProductView> search(User user, ProductFilter filter, Collection<Long> nameMatchingCategories,
+                                    LocalDate today, Sort sort) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ProductView> query = cb.createQuery(ProductView.class);
+        Root<Product> product = query.from(Product.class);
+        Join<Product, Category> category = product.join("category", JoinType.LEFT);
+        Path<LocalDate> expirationDate = product.get("expirationDate");
+
+        query.select(cb.construct(ProductView.class,
+                product.get("id"), product.get("name"), expirationDate, product.get("quantity"),
+                category.get("id"), category.get("name"), product.get("lockVersion")));
+
+        List<Predicate> predicates = new ArrayList<>();
+        predicates.add(cb.equal(product.get("user"), user));
+        if (filter.getStatus() != null) {
+            LocalDate nextWeek = today.plusDays(7);
+            predicates.add(switch (filter.getStatus()) {
+                case RED -> cb.lessThan(expirationDate, today);
+                case YELLOW -> cb.between(expirationDate, today, nextWeek);
+                case GREEN -> cb.greaterThan(expirationDate, nextWeek);
+            });
+        }
+        if (filter.getCategoryId() != null) {
+            predicates.add(cb.equal(category.get("id"), filter.getCategoryId()));
+        }
+        if (filter.getExpiresFrom() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(expirationDate, filter.getExpiresFrom()));
+        }
+        if (filter.getExpiresTo() != null) {
+            predicates.add(cb.lessThanOrEqualTo(expirationDate, filter.getExpiresTo()));
+        }
+        if (filter.getName() != null && !filter.getName().isBlank()) {
+            String text = escapeLike(filter.getName().strip().toLowerCase(Locale.ROOT));
+            String pattern = filter.getNameMatch() == NameMatch.PREFIX ? text + "%" : "%" + text + "%";
+            Predicate nameMatches = cb.like(cb.lower(product.get("name")), pattern, LIKE_ESCAPE);
+            // Compared on the foreign key, so the name side stays a single-table predicate the index can serve
+            predicates.add(nameMatchingCategories.isEmpty() ? nameMatches
+                    : cb.or(nameMatches, product.get("category").get("id").in(nameMatchingCategories)));
+        }
+        query.where(predicates.toArray(Predicate[]::new));
+
+        List<Order> orders = new ArrayList<>();
+        for (Sort.Order order : sort) {
+            Expression<?> path = order.getProperty().equals("categoryName")
+                    ? category.get("name")
+                    : product.get(order.getProperty());
+            orders.add(order.isAscending() ? cb.asc(path) : cb.desc(path));
+        }
+        orders.add(cb.asc(product.get("id")));
+        query.orderBy(orders);
+
+        return entityManager.createQuery(query).getResultList();
+    }
+
+    private static String escapeLike(String text) {
+        return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -0,0 +1,31 @@
+package SmartPantry.demo.repositories;
+
+import SmartPantry.demo.entities.ProductTombstone;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface ProductTombstoneRepository extends JpaRepository<ProductTombstone, Long> {
+
+    @Query("SELECT t.productId FROM ProductTombstone t WHERE t.userId = :userId AND t.changeVersion > :version")
+    List<Long> findDeletedSince(@Param("userId") Long userId, @Param("version") long version);
+
+    // One statement for any number of deletions, where saving entities would insert them one by one
+    @Modifying
+    @Query(value = "INSERT INTO product_tombstones (product_id, user_id, change_version, deleted_on) "
+            + "SELECT p.id, p.user_id, :version, :deletedOn FROM products p WHERE p.id IN (:ids)", nativeQuery = true)
+    int insertForProducts(@Param("ids") Collection<Long> ids, @Param("version") long version,
+                          @Param("deletedOn") LocalDate deletedOn);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ProductTombstone t WHERE t.deletedOn < :date")
+    int deleteDeletedBefore(@Param("date") LocalDate date);
+}
@@ -0,0 +1,20 @@
+package SmartPantry.demo.repositories.projections;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+/**
+ * A product still waiting for its expiry notification, together with the owner it is sent to.
+ */
+@Data
+@AllArgsConstructor
+public class NotificationCandidate {
+    private Long productId;
+    private Long userId;
+    private String username;
+    private String email;
+    private String productName;
+    private LocalDate expirationDate;
+}
@@ -0,0 +1,23 @@
+package SmartPantry.demo.repositories.projections;
+
+import SmartPantry.demo.entities.enums.ExpiryStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * One group of the pantry summary aggregate: a user's products sharing an expiry bucket and category.
+ */
+@Data
+@AllArgsConstructor
+public class ProductSummaryRow {
+    private ExpiryStatus status;
+    private Long categoryId;
+    private String categoryName;
+    private long count;
+    private long quantity;
+
+    // The bucket is computed in SQL as the status name
+    public ProductSummaryRow(String status, Long categoryId, String categoryName, long count, long quantity) {
+        this(ExpiryStatus.valueOf(status), categoryId, categoryName, count, quantity);
+    }
+}
@@ -0,0 +1,22 @@
+package SmartPantry.demo.repositories.projections;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+/**
+ * The columns of a product listing row, with the category joined in the same statement.
+ * Selected through JPQL constructor expressions, so no entity is loaded or managed.
+ */
+@Data
+@AllArgsConstructor
+public class ProductView {
+    private Long id;
+    private String name;
+    private LocalDate expirationDate;
+    private int quantity;
+    private Long categoryId;
+    private String categoryName;
+    private long lockVersion;
+}
@@ -8,8 +8,9 @@ import SmartPantry.demo.entities.User;
 import SmartPantry.demo.repositories.UserRepository;
 import SmartPantry.demo.services.interfaces.IAuthService;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.Set;
 
@@ -22,7 +23,9 @@ public class AuthService implements IAuthService {
 
     private final UserRepository userRepository;
     private final JwtUtil jwtUtil;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHasher passwordHasher;
+    private final CollectionVersionService collectionVersionService;
+    private final PlatformTransactionManager transactionManager;
 
     /**
      * Registers a new user in system with password hashing.
@@ -42,13 +45,18 @@ public class AuthService implements IAuthService {
         User user = User.builder()
                 .username(request.getUsername())
                 .email(request.getEmail())
-                .password(passwordEncoder.encode(request.getPassword()))
+                .password(passwordHasher.encode(request.getPassword()))
                 .build();
-        userRepository.save(user);
+        // The product counter is created with the user, so their first write only has to increment it
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            userRepository.save(user);
+            collectionVersionService.create(CollectionVersionService.products(user.getId()));
+        });
     }
 
     /**
      * Authenticates a user and generates a JWT token.
+     * A password hashed with another BCrypt cost than the configured one is rehashed on success.
      *
      * @param request login credentials (username and password)
      * @return an {@link AuthResponse} containing JWT token, username, and roles
@@ -59,9 +67,12 @@ public class AuthService implements IAuthService {
         User user = userRepository.findByUsername(request.getUsername())
                 .orElseThrow(() -> new IllegalArgumentException("Invalid username or password"));
 
-        if (!passwordEncoder.matches(request.getPassword(), user.getPassword())) {
+        if (!passwordHasher.matches(request.getPassword(), user.getPassword())) {
             throw new IllegalArgumentException("Invalid username or password");
         }
+        if (passwordHasher.needsRehash(user.getPassword())) {
+            userRepository.updatePassword(user.getId(), passwordHasher.encode(request.getPassword()));
+        }
 
         String token = jwtUtil.generateToken(user.getId(), user.getUsername());
 
@@ -0,0 +1,212 @@
+package SmartPantry.demo.services;
+
+import SmartPantry.demo.entities.Category;
+import SmartPantry.demo.repositories.CategoryRepository;
+import SmartPantry.demo.repositories.CollectionVersionRepository;
+import SmartPantry.demo.services.interfaces.ICacheInvalidationChannel;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Read-through cache of the category table as an immutable id-to-name snapshot, together with the
+ * version of the category collection it was loaded at.
+ * The snapshot is loaded on first use and swapped atomically; invalidations arrive through the
+ * {@link ICacheInvalidationChannel} so every node reloads after a category changes.
+ * When reads are routed to a replica, a reload right after an invalidation is only kept once it shows a newer
+ * version than the snapshot it replaces; until then, or for at most the replica lag window, it is served without
+ * being cached.
+ */
+@Component
+@RequiredArgsConstructor
+public class CategoryCache implements MeterBinder {
+
+    static final String CACHE_NAME = "categories";
+
+    private final CategoryRepository categoryRepository;
+    private final CollectionVersionRepository collectionVersionRepository;
+    private final ICacheInvalidationChannel invalidationChannel;
+    private final PlatformTransactionManager transactionManager;
+
+    // Whether ReadWriteRoutingConfig is active
+    @Value("#{'${datasource.replica.jdbc-url:}' != ''}")
+    private boolean readsRouted;
+
+    // How long a reload may keep returning the invalidated version before it is trusted anyway
+    @Value("${datasource.routing.sticky-ms:5000}")
+    private long replicaLagMillis;
+
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+    // Bumped on every invalidation so a load that raced with one is never served
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicReference<Floor> floor = new AtomicReference<>();
+    // The generation resolveName last reloaded, so a dangling id costs at most one reload per generation
+    private final AtomicLong reloadedOnMiss = new AtomicLong(-1);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    @PostConstruct
+    void subscribe() {
+        invalidationChannel.subscribe(CACHE_NAME, this::evict);
+    }
+
+    /**
+     * Returns all categories as an unmodifiable map from id to name, ordered by id.
+     */
+    public Map<Long, String> getAll() {
+        return getSnapshot().names();
+    }
+
+    /**
+     * Returns the version of the category collection the cached names were loaded at.
+     */
+    public long getVersion() {
+        return getSnapshot().version();
+    }
+
+    public boolean contains(Long id) {
+        return getAll().containsKey(id);
+    }
+
+    /**
+     * @return the category's name, or {@code null} if it is not in the snapshot
+     */
+    public String getName(Long id) {
+        return getAll().get(id);
+    }
+
+    /**
+     * Like {@link #getName(Long)} for an id known to exist, such as one a product references: a snapshot that does
+     * not have it yet predates the category, so it is reloaded instead of loading the category entity. Only the first
+     * miss on a snapshot reloads it; ids still missing from the reloaded one are not in the table.
+     *
+     * @return the category's name, or {@code null} if it is not in the table either
+     */
+    public String resolveName(Long id) {
+        Snapshot current = getSnapshot();
+        String name = current.names().get(id);
+        if (name != null || current.generation() == reloadedOnMiss.get()) {
+            return name;
+        }
+        // Marked before the bump so concurrent misses on the reloaded snapshot do not reload it again
+        long next = current.generation() + 1;
+        reloadedOnMiss.set(next);
+        generation.compareAndSet(current.generation(), next);
+        return getName(id);
+    }
+
+    /**
+     * Drops the cache on every node once the current transaction commits, or immediately outside a transaction.
+     */
+    public void invalidate() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidationChannel.publish(CACHE_NAME);
+                }
+            });
+        } else {
+            invalidationChannel.publish(CACHE_NAME);
+        }
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Publishes the hit and miss counts as {@code cache.gets}, tagged the way Spring's cache metrics are.
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("cache.gets", this, CategoryCache::getHitCount)
+                .tag("cache", CACHE_NAME).tag("result", "hit")
+                .description("Category lookups served from the snapshot")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", this, CategoryCache::getMissCount)
+                .tag("cache", CACHE_NAME).tag("result", "miss")
+                .description("Category lookups that loaded the table")
+                .register(registry);
+    }
+
+    private Snapshot getSnapshot() {
+        long currentGeneration = generation.get();
+        Snapshot current = snapshot.get();
+        if (current != null && current.generation() == currentGeneration) {
+            hits.increment();
+            return current;
+        }
+
+        misses.increment();
+        // Both reads in one read-only transaction, so they come from the same database when reads are routed
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        Snapshot loaded = readOnly.execute(status -> load(currentGeneration));
+        if (!isBehind(loaded)) {
+            snapshot.set(loaded);
+        }
+        return loaded;
+    }
+
+    private Snapshot load(long currentGeneration) {
+        // Read before the names: a write landing in between makes the version stale, never the names
+        long version = collectionVersionRepository.findVersion(CollectionVersionService.CATEGORIES).orElse(0L);
+        Map<Long, String> names = new LinkedHashMap<>();
+        categoryRepository.findAll().stream()
+                .sorted(Comparator.comparing(Category::getId))
+                .forEach(category -> names.put(category.getId(), category.getName()));
+        return new Snapshot(currentGeneration, version, Collections.unmodifiableMap(names));
+    }
+
+    /**
+     * Whether a load still shows the version that was invalidated, as a lagging replica would.
+     */
+    private boolean isBehind(Snapshot loaded) {
+        Floor current = floor.get();
+        if (current == null) {
+            return false;
+        }
+        if (loaded.version() > current.invalidatedVersion() || System.nanoTime() - current.untilNanos() >= 0) {
+            floor.compareAndSet(current, null);
+            return false;
+        }
+        return true;
+    }
+
+    private void evict() {
+        long evictedGeneration = generation.getAndIncrement();
+        Snapshot evicted = snapshot.getAndSet(null);
+        // The category table changed, so a reload still showing the dropped version is behind
+        if (readsRouted && evicted != null && evicted.generation() == evictedGeneration) {
+            floor.set(new Floor(evicted.version(), System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(replicaLagMillis)));
+        }
+    }
+
+    private record Snapshot(long generation, long version, Map<Long, String> names) {
+    }
+
+    private record Floor(long invalidatedVersion, long untilNanos) {
+    }
+}
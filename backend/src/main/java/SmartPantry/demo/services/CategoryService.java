@@ -20,23 +20,32 @@ import java.util.List;
 public class CategoryService implements ICategoryService {
 
     private final CategoryRepository categoryRepository;
+    private final CategoryCache categoryCache;
+    private final CollectionVersionService collectionVersionService;
 
     /**
-     * Retrieves all available categories.
+     * Retrieves all available categories from the category cache.
      *
-     * @return a list of {@link CategoryResponse} objects
+     * @return a list of {@link CategoryResponse} objects ordered by id
      */
     @Override
     public List<CategoryResponse> getAll() {
-        List<Category> categories = categoryRepository.findAll();
-        return categories.stream()
+        return categoryCache.getAll().entrySet().stream()
                 .map(category -> CategoryResponse.builder()
-                        .id(category.getId())
-                        .name(category.getName())
+                        .id(category.getKey())
+                        .name(category.getValue())
                         .build())
                 .toList();
     }
 
+    /**
+     * Returns the version of the category list served by {@link #getAll()}, without touching the database.
+     */
+    @Override
+    public long getVersion() {
+        return categoryCache.getVersion();
+    }
+
     /**
      * Creates a new category.
      *
@@ -50,10 +59,12 @@ public class CategoryService implements ICategoryService {
         if (categoryRepository.existsByName(request.getName())) {
             throw new IllegalArgumentException("This category already exists");
         }
+        collectionVersionService.bump(CollectionVersionService.CATEGORIES);
         Category category = Category.builder()
                 .name(request.getName())
                 .build();
         Category savedCategory = categoryRepository.save(category);
+        categoryCache.invalidate();
         return mapToResponse(savedCategory);
     }
 
@@ -71,8 +82,10 @@ public class CategoryService implements ICategoryService {
             throw new IllegalArgumentException("Category name already exists");
         }
 
+        collectionVersionService.bump(CollectionVersionService.CATEGORIES);
         category.setName(request.getName());
         Category savedCategory = categoryRepository.save(category);
+        categoryCache.invalidate();
         return mapToResponse(savedCategory);
     }
 
@@ -85,7 +98,9 @@ public class CategoryService implements ICategoryService {
         if (!categoryRepository.existsById(id)) {
             throw new ResourceNotFoundException("Category", id);
         }
+        collectionVersionService.bump(CollectionVersionService.CATEGORIES);
         categoryRepository.deleteById(id);
+        categoryCache.invalidate();
     }
 
     private CategoryResponse mapToResponse(Category category) {
@@ -0,0 +1,65 @@
+package SmartPantry.demo.services;
+
+import SmartPantry.demo.exceptions.ConflictException;
+import SmartPantry.demo.repositories.CollectionVersionRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Service that keeps the change counters behind conditional GETs and delta reads.
+ * A write increments its collection's counter before changing any row, so the counter's row lock
+ * orders the writers of a collection by commit: once a reader sees version {@code n}, every change
+ * stamped with {@code n} or less has been committed.
+ */
+@Service
+@RequiredArgsConstructor
+public class CollectionVersionService {
+
+    public static final String CATEGORIES = "categories";
+
+    private final CollectionVersionRepository collectionVersionRepository;
+
+    public static String products(Long userId) {
+        return "products:" + userId;
+    }
+
+    /**
+     * Increments the version of a collection in the current transaction, creating its counter on first use.
+     * Counters of user collections are created with the user, so this only inserts for collections that
+     * predate that, in the same transaction rather than on a second connection.
+     *
+     * @param name the collection, see {@link #products(Long)} and {@link #CATEGORIES}
+     * @return the new version, which the caller stamps on the rows it changes
+     * @throws ConflictException if a concurrent first write created the counter at the same time
+     */
+    @Transactional
+    public long bump(String name) {
+        if (collectionVersionRepository.increment(name) == 0) {
+            try {
+                collectionVersionRepository.createIfAbsent(name);
+            } catch (DataIntegrityViolationException e) {
+                // The other writer's insert won; the failed statement has aborted this transaction on PostgreSQL
+                throw new ConflictException("The " + name + " collection was written concurrently, please retry");
+            }
+            collectionVersionRepository.increment(name);
+        }
+        return collectionVersionRepository.findVersion(name).orElseThrow();
+    }
+
+    /**
+     * Creates the counter of a new collection at version 0 in the current transaction.
+     */
+    @Transactional
+    public void create(String name) {
+        collectionVersionRepository.createIfAbsent(name);
+    }
+
+    /**
+     * @return the last committed version of a collection, or 0 if it has never been written
+     */
+    public long current(String name) {
+        return collectionVersionRepository.findVersion(name).orElse(0L);
+    }
+}
@@ -0,0 +1,256 @@
+package SmartPantry.demo.services;
+
+import SmartPantry.demo.dtos.notifications.NotificationDigest;
+import SmartPantry.demo.repositories.ProductRepository;
+import SmartPantry.demo.repositories.projections.NotificationCandidate;
+import SmartPantry.demo.services.interfaces.INotificationSender;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Service that sends one expiry digest per user for the products entering the alert window.
+ * Due products are read in keyset-paginated batches ordered by owner, so every owner's rows arrive
+ * together and are grouped into a single digest no matter how many there are. Digests go out with
+ * bounded concurrency and a paced submission rate, and a product is only marked notified once the
+ * digest that contains it has been sent.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ExpiryNotificationService {
+
+    // Products expiring within this many days of today are notified, matching the YELLOW window
+    private static final int ALERT_DAYS = 7;
+
+    private final ProductRepository productRepository;
+    private final INotificationSender notificationSender;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${notifications.batch-size:500}")
+    private int batchSize;
+
+    @Value("${notifications.dispatch.concurrency:4}")
+    private int concurrency;
+
+    @Value("${notifications.dispatch.max-per-second:20}")
+    private int maxPerSecond;
+
+    @Value("${notifications.dispatch.max-attempts:4}")
+    private int maxAttempts;
+
+    @Value("${notifications.dispatch.retry-backoff-ms:500}")
+    private long retryBackoffMillis;
+
+    /**
+     * Sends the digests due on {@code today} and marks their products as notified.
+     * Digests that fail after every attempt leave their products untouched, so the next run
+     * picks them up again.
+     *
+     * @param today the reference date; products expiring up to {@code ALERT_DAYS} later are included
+     * @return a {@link Report} with the number of digests and products handled
+     */
+    public Report sendDueNotifications(LocalDate today) {
+        long start = System.nanoTime();
+        LocalDate before = today.plusDays(ALERT_DAYS + 1);
+        long pacingNanos = maxPerSecond > 0 ? TimeUnit.SECONDS.toNanos(1) / maxPerSecond : 0;
+
+        AtomicInteger sent = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        AtomicInteger notified = new AtomicInteger();
+        int batches = 0;
+
+        // The semaphore keeps at most `concurrency` digests in flight, which also stops the reader
+        // from buffering digests faster than they are sent
+        Semaphore inFlight = new Semaphore(Math.max(1, concurrency));
+        try (ExecutorService executor = Executors.newFixedThreadPool(
+                Math.max(1, concurrency), Thread.ofVirtual().name("expiry-notify-", 0).factory())) {
+            List<NotificationCandidate> pending = new ArrayList<>();
+            long lastUserId = 0;
+            long lastId = 0;
+            long nextSubmit = System.nanoTime();
+
+            while (true) {
+                List<NotificationCandidate> batch = productRepository.findDueForNotification(
+                        before, lastUserId, lastId, Limit.of(batchSize));
+                batches++;
+                boolean lastBatch = batch.size() < batchSize;
+                if (!batch.isEmpty()) {
+                    NotificationCandidate tail = batch.getLast();
+                    lastUserId = tail.getUserId();
+                    lastId = tail.getProductId();
+                }
+
+                for (NotificationCandidate candidate : batch) {
+                    // A new owner closes the previous owner's digest; the last owner may continue in the next batch
+                    if (!pending.isEmpty() && !pending.getFirst().getUserId().equals(candidate.getUserId())) {
+                        nextSubmit = submit(executor, inFlight, toDigest(pending, today), nextSubmit, pacingNanos,
+                                sent, failed, notified);
+                        pending = new ArrayList<>();
+                    }
+                    pending.add(candidate);
+                }
+
+                if (lastBatch) {
+                    if (!pending.isEmpty()) {
+                        submit(executor, inFlight, toDigest(pending, today), nextSubmit, pacingNanos,
+                                sent, failed, notified);
+                    }
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Expiry notification run interrupted; unsent products stay pending");
+        }
+
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        return new Report(batches, sent.get(), failed.get(), notified.get(), elapsedMillis);
+    }
+
+    /**
+     * Waits for the pacing slot and a free dispatch permit, then hands the digest to a worker.
+     *
+     * @return the earliest time the next digest may be submitted
+     */
+    private long submit(ExecutorService executor, Semaphore inFlight, NotificationDigest digest,
+                        long nextSubmit, long pacingNanos, AtomicInteger sent, AtomicInteger failed,
+                        AtomicInteger notified) throws InterruptedException {
+        long wait = nextSubmit - System.nanoTime();
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+        inFlight.acquire();
+        executor.execute(() -> {
+            try {
+                if (deliver(digest)) {
+                    sent.incrementAndGet();
+                    notified.addAndGet(markNotified(digest));
+                } else {
+                    failed.incrementAndGet();
+                }
+            } catch (RuntimeException e) {
+                // The digest went out but none of its products were marked; the next run sends it again
+                // under the same idempotency key
+                log.error("Expiry digest {} was sent but could not be marked notified",
+                        digest.getIdempotencyKey(), e);
+            } finally {
+                inFlight.release();
+            }
+        });
+        return Math.max(nextSubmit, System.nanoTime()) + pacingNanos;
+    }
+
+    /**
+     * Sends a digest, retrying with exponential backoff and jitter.
+     *
+     * @return whether the sender accepted the digest
+     */
+    private boolean deliver(NotificationDigest digest) {
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            try {
+                notificationSender.send(digest);
+                return true;
+            } catch (RuntimeException e) {
+                if (attempt == maxAttempts) {
+                    log.error("Expiry digest {} failed after {} attempts", digest.getIdempotencyKey(), attempt, e);
+                    return false;
+                }
+                long backoff = retryBackoffMillis << (attempt - 1);
+                log.warn("Expiry digest {} failed on attempt {}, retrying in {} ms: {}",
+                        digest.getIdempotencyKey(), attempt, backoff, e.getMessage());
+                try {
+                    Thread.sleep(backoff + ThreadLocalRandom.current().nextLong(retryBackoffMillis + 1));
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+
+    private int markNotified(NotificationDigest digest) {
+        List<Long> ids = digest.getItems().stream().map(NotificationDigest.Item::getProductId).toList();
+        // Chunked so a large digest stays under the bind parameter limit of the database, but in one
+        // transaction so a sent digest is never left partially marked
+        Integer marked = new TransactionTemplate(transactionManager).execute(status -> {
+            int count = 0;
+            for (int from = 0; from < ids.size(); from += batchSize) {
+                count += productRepository.markNotified(ids.subList(from, Math.min(from + batchSize, ids.size())));
+            }
+            return count;
+        });
+        return marked == null ? 0 : marked;
+    }
+
+    private NotificationDigest toDigest(List<NotificationCandidate> candidates, LocalDate today) {
+        NotificationCandidate owner = candidates.getFirst();
+        List<NotificationDigest.Item> items = candidates.stream()
+                .map(candidate -> new NotificationDigest.Item(
+                        candidate.getProductId(), candidate.getProductName(), candidate.getExpirationDate()))
+                .toList();
+        List<Long> productIds = items.stream().map(NotificationDigest.Item::getProductId).sorted().toList();
+
+        return NotificationDigest.builder()
+                .idempotencyKey("expiry-digest:" + owner.getUserId() + ":" + today + ":" + fingerprint(productIds))
+                .userId(owner.getUserId())
+                .username(owner.getUsername())
+                .email(owner.getEmail())
+                .date(today)
+                .items(items)
+                .build();
+    }
+
+    /**
+     * SHA-256 over the sorted product ids, so two digests of the same day share a key only when they
+     * carry the same products.
+     */
+    private static String fingerprint(List<Long> sortedIds) {
+        MessageDigest sha256;
+        try {
+            sha256 = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to provide SHA-256
+            throw new IllegalStateException(e);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+        for (Long id : sortedIds) {
+            sha256.update(buffer.clear().putLong(id).flip());
+        }
+        return HexFormat.of().formatHex(sha256.digest());
+    }
+
+    /**
+     * Summary of a notification run.
+     */
+    @Data
+    @AllArgsConstructor
+    public static class Report {
+        private int batches;
+        private int digestsSent;
+        private int digestsFailed;
+        private int productsNotified;
+        private long elapsedMillis;
+    }
+}
@@ -0,0 +1,240 @@
+package SmartPantry.demo.services;
+
+import SmartPantry.demo.entities.enums.ExpiryStatus;
+import SmartPantry.demo.repositories.ProductRepository;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+/**
+ * Service that recalculates the persisted {@link ExpiryStatus} of products.
+ * Each status transition runs as a single date-bounded bulk UPDATE, so no product
+ * rows are loaded into memory regardless of the size of the table. The id space is
+ * split into partitions that run in parallel, each one in its own transaction.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ExpiryReclassificationService {
+
+    private final ProductRepository productRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${expiry.sweep.parallelism:4}")
+    private int parallelism;
+
+    @Value("${expiry.sweep.partition-size:50000}")
+    private long partitionSize;
+
+    @Value("${expiry.sweep.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${expiry.sweep.retry-backoff-ms:500}")
+    private long retryBackoffMillis;
+
+    /**
+     * Moves products whose stored status no longer matches their expiration date
+     * into the correct status.
+     * RED: expired (before today)
+     * YELLOW: expires within 7 days (including today)
+     * GREEN: expires after 7 days
+     *
+     * @param today the reference date for the reclassification
+     * @param mode {@link Mode#FULL} to check every product, {@link Mode#HORIZON} to only
+     *             touch products whose next transition date has been reached
+     * @return a {@link Report} with affected rows and elapsed time per transition
+     */
+    public Report reclassify(LocalDate today, Mode mode) {
+        long start = System.nanoTime();
+        Long minId = productRepository.findMinId();
+        Long maxId = productRepository.findMaxId();
+        if (minId == null || maxId == null) {
+            return new Report(List.of(), 0, 0, 0);
+        }
+
+        List<long[]> partitions = new ArrayList<>();
+        for (long lower = minId; lower <= maxId; lower += partitionSize) {
+            partitions.add(new long[]{lower, Math.min(lower + partitionSize - 1, maxId)});
+        }
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        Map<String, Transition> merged = new LinkedHashMap<>();
+        int failedPartitions = 0;
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(
+                Math.max(1, parallelism), Thread.ofVirtual().name("expiry-sweep-", 0).factory())) {
+            List<Future<List<Transition>>> futures = new ArrayList<>();
+            for (long[] partition : partitions) {
+                futures.add(executor.submit(() ->
+                        sweepPartition(transactionTemplate, partition[0], partition[1], today, mode)));
+            }
+
+            for (Future<List<Transition>> future : futures) {
+                List<Transition> transitions = await(future);
+                if (transitions == null) {
+                    failedPartitions++;
+                    continue;
+                }
+                for (Transition transition : transitions) {
+                    merged.merge(transition.getFrom() + "->" + transition.getTo(), transition, (total, next) ->
+                            new Transition(total.getFrom(), total.getTo(),
+                                    total.getRows() + next.getRows(),
+                                    total.getElapsedMillis() + next.getElapsedMillis()));
+                }
+            }
+        }
+
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        return new Report(new ArrayList<>(merged.values()), partitions.size(), failedPartitions, elapsedMillis);
+    }
+
+    /**
+     * Runs every transition statement of one id range in a single transaction, retrying
+     * the whole partition with a linear backoff when it fails.
+     *
+     * @return the transitions of the partition, or {@code null} if every attempt failed
+     */
+    private List<Transition> sweepPartition(TransactionTemplate transactionTemplate, long minId, long maxId,
+                                            LocalDate today, Mode mode) throws InterruptedException {
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            long start = System.nanoTime();
+            try {
+                List<Transition> transitions = transactionTemplate.execute(status -> mode == Mode.HORIZON
+                        ? reclassifyDue(minId, maxId, today)
+                        : reclassifyAll(minId, maxId, today));
+
+                long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                int rows = transitions.stream().mapToInt(Transition::getRows).sum();
+                log.info("Expiry sweep partition [{}, {}]: {} products in {} ms ({} products/s, attempt {})",
+                        minId, maxId, rows, elapsedMillis,
+                        elapsedMillis == 0 ? rows : rows * 1000L / elapsedMillis, attempt);
+                return transitions;
+            } catch (RuntimeException e) {
+                if (attempt == maxAttempts) {
+                    log.error("Expiry sweep partition [{}, {}] failed after {} attempts", minId, maxId, attempt, e);
+                    return null;
+                }
+                log.warn("Expiry sweep partition [{}, {}] failed on attempt {}, retrying: {}",
+                        minId, maxId, attempt, e.getMessage());
+                Thread.sleep(retryBackoffMillis * attempt);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks every product against its expiration date. Also stamps the next transition
+     * date on rows that were stored before it existed, so they join the horizon sweep.
+     */
+    private List<Transition> reclassifyAll(long minId, long maxId, LocalDate today) {
+        LocalDate nextWeek = today.plusDays(7);
+        List<Transition> transitions = new ArrayList<>();
+
+        for (ExpiryStatus to : ExpiryStatus.values()) {
+            for (ExpiryStatus from : ExpiryStatus.values()) {
+                if (from == to) {
+                    switch (to) {
+                        case YELLOW -> transitions.add(run(from, to, () ->
+                                productRepository.stampMissingExpiringHorizon(minId, maxId, today, nextWeek)));
+                        case GREEN -> transitions.add(run(from, to, () ->
+                                productRepository.stampMissingFreshHorizon(minId, maxId, nextWeek)));
+                        case RED -> { }
+                    }
+                    continue;
+                }
+                transitions.add(run(from, to, () -> switch (to) {
+                    case RED -> productRepository.markExpired(minId, maxId, from, today);
+                    case YELLOW -> productRepository.markExpiring(minId, maxId, from, today, nextWeek);
+                    case GREEN -> productRepository.markFresh(minId, maxId, from, nextWeek);
+                }));
+            }
+        }
+        return transitions;
+    }
+
+    /**
+     * Only visits products whose next transition date is today or earlier. Statuses
+     * only move forward (GREEN to YELLOW to RED), so the cost follows daily churn.
+     */
+    private List<Transition> reclassifyDue(long minId, long maxId, LocalDate today) {
+        LocalDate nextWeek = today.plusDays(7);
+        List<Transition> transitions = new ArrayList<>();
+
+        transitions.add(run(ExpiryStatus.GREEN, ExpiryStatus.YELLOW, () ->
+                productRepository.markDueExpiring(minId, maxId, ExpiryStatus.GREEN, today, nextWeek)));
+        transitions.add(run(ExpiryStatus.GREEN, ExpiryStatus.RED, () ->
+                productRepository.markDueExpired(minId, maxId, ExpiryStatus.GREEN, today)));
+        transitions.add(run(ExpiryStatus.YELLOW, ExpiryStatus.RED, () ->
+                productRepository.markDueExpired(minId, maxId, ExpiryStatus.YELLOW, today)));
+        return transitions;
+    }
+
+    private Transition run(ExpiryStatus from, ExpiryStatus to, IntSupplier statement) {
+        long start = System.nanoTime();
+        int rows = statement.getAsInt();
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        return new Transition(from, to, rows, elapsedMillis);
+    }
+
+    private List<Transition> await(Future<List<Transition>> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            log.error("Expiry sweep partition aborted", e.getCause());
+            return null;
+        }
+    }
+
+    /**
+     * Strategy used to select the products visited by a sweep.
+     */
+    public enum Mode {
+        FULL,
+        HORIZON
+    }
+
+    /**
+     * Outcome of a single transition across all partitions. When {@code from} equals
+     * {@code to} the statement only stamped a missing next transition date.
+     */
+    @Data
+    @AllArgsConstructor
+    public static class Transition {
+        private ExpiryStatus from;
+        private ExpiryStatus to;
+        private int rows;
+        private long elapsedMillis;
+    }
+
+    /**
+     * Summary of a sweep: merged transitions plus partition bookkeeping.
+     */
+    @Data
+    @AllArgsConstructor
+    public static class Report {
+        private List<Transition> transitions;
+        private int partitions;
+        private int failedPartitions;
+        private long elapsedMillis;
+    }
+}
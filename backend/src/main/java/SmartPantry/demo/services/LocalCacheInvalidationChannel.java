@@ -0,0 +1,28 @@
+package SmartPantry.demo.services;
+
+import SmartPantry.demo.services.interfaces.ICacheInvalidationChannel;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * In-process invalidation channel: publishing runs the listeners of this node only.
+ */
+@Component
+public class LocalCacheInvalidationChannel implements ICacheInvalidationChannel {
+
+    private final Map<String, List<Runnable>> listeners = new ConcurrentHashMap<>();
+
+    @Override
+    public void publish(String cacheName) {
+        listeners.getOrDefault(cacheName, List.of()).forEach(Runnable::run);
+    }
+
+    @Override
+    public void subscribe(String cacheName, Runnable listener) {
+        listeners.computeIfAbsent(cacheName, key -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+}
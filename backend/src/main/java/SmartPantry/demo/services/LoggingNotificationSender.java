@@ -0,0 +1,68 @@
+package SmartPantry.demo.services;
+
+import SmartPantry.demo.dtos.notifications.NotificationDigest;
+import SmartPantry.demo.services.interfaces.INotificationSender;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Local sender: logs each digest and, when {@code notifications.sender.file} is set, appends it to
+ * that file as one JSON line. Recently delivered idempotency keys are remembered so a retried
+ * digest is not written twice.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class LoggingNotificationSender implements INotificationSender {
+
+    private static final int REMEMBERED_KEYS = 10_000;
+
+    private final ObjectMapper objectMapper;
+
+    // Guards the delivered keys and the file appends; a lock rather than synchronized keeps virtual threads unpinned
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Map<String, Boolean> deliveredKeys = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > REMEMBERED_KEYS;
+        }
+    };
+
+    @Value("${notifications.sender.file:}")
+    private String file;
+
+    @Override
+    public void send(NotificationDigest digest) {
+        lock.lock();
+        try {
+            if (deliveredKeys.containsKey(digest.getIdempotencyKey())) {
+                log.debug("Expiry digest {} was already delivered", digest.getIdempotencyKey());
+                return;
+            }
+            if (!file.isBlank()) {
+                Files.writeString(Path.of(file), objectMapper.writeValueAsString(digest) + "\n",
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+            deliveredKeys.put(digest.getIdempotencyKey(), Boolean.TRUE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+        log.info("Expiry digest {} for {}: {} products", digest.getIdempotencyKey(), digest.getUsername(),
+                digest.getItems().size());
+    }
+}
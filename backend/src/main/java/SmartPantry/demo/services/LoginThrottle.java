@@ -0,0 +1,87 @@
+package SmartPantry.demo.services;
+
+import SmartPantry.demo.exceptions.TooManyRequestsException;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rate limits the authentication endpoints before any password is hashed.
+ * Every attempt takes a token from the client address's bucket; logins also take one from the
+ * username's bucket, so a password guessed from many addresses is throttled as well.
+ */
+@Service
+@Slf4j
+public class LoginThrottle {
+
+    @Value("${auth.rate-limit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${auth.rate-limit.address.capacity:20}")
+    private int addressCapacity;
+
+    @Value("${auth.rate-limit.address.refill-per-minute:20}")
+    private int addressRefillPerMinute;
+
+    @Value("${auth.rate-limit.username.capacity:5}")
+    private int usernameCapacity;
+
+    @Value("${auth.rate-limit.username.refill-per-minute:5}")
+    private int usernameRefillPerMinute;
+
+    @Value("${auth.rate-limit.idle-timeout-ms:600000}")
+    private long idleTimeoutMillis;
+
+    private TokenBucketRateLimiter byAddress;
+    private TokenBucketRateLimiter byUsername;
+
+    @PostConstruct
+    void createLimiters() {
+        byAddress = new TokenBucketRateLimiter(addressCapacity, addressRefillPerMinute, idleTimeoutMillis, System::nanoTime);
+        byUsername = new TokenBucketRateLimiter(usernameCapacity, usernameRefillPerMinute, idleTimeoutMillis, System::nanoTime);
+    }
+
+    /**
+     * @throws TooManyRequestsException if the address or the username is over its login rate
+     */
+    public void checkLogin(String address, String username) {
+        if (!enabled) {
+            return;
+        }
+        check(byAddress, address);
+        check(byUsername, username == null ? "" : username.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * @throws TooManyRequestsException if the address is over its rate
+     */
+    public void checkRegistration(String address) {
+        if (enabled) {
+            check(byAddress, address);
+        }
+    }
+
+    /**
+     * Drops the buckets of addresses and usernames that have been quiet for the idle timeout.
+     */
+    @Scheduled(fixedDelayString = "${auth.rate-limit.eviction-interval-ms:60000}")
+    public void evictIdle() {
+        int evicted = byAddress.evictIdle() + byUsername.evictIdle();
+        if (evicted > 0) {
+            log.debug("Evicted {} idle rate limit buckets; {} remain", evicted, byAddress.size() + byUsername.size());
+        }
+    }
+
+    private void check(TokenBucketRateLimiter limiter, String key) {
+        long waitNanos = limiter.tryAcquire(key);
+        if (waitNanos > 0) {
+            long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+            throw new TooManyRequestsException("Too many authentication attempts, try again later", retryAfterSeconds);
+        }
+    }
+}
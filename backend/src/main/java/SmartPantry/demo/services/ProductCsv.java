@@ -0,0 +1,141 @@
+package SmartPantry.demo.services;
+
+import SmartPantry.demo.dtos.requests.ProductRequest;
+import SmartPantry.demo.dtos.responses.ProductResponse;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * CSV (RFC 4180) form of products for bulk import and export.
+ * An exported file can be imported again: import reads the {@code name}, {@code expirationDate},
+ * {@code quantity} and {@code categoryId} columns by header name and ignores the rest.
+ */
+public final class ProductCsv {
+
+    public static final String HEADER = "id,name,expirationDate,quantity,categoryId,categoryName,expiryStatus,daysRemaining";
+
+    private ProductCsv() {
+    }
+
+    public static String toLine(ProductResponse product) {
+        return String.join(",",
+                String.valueOf(product.getId()),
+                quote(product.getName()),
+                String.valueOf(product.getExpirationDate()),
+                String.valueOf(product.getQuantity()),
+                product.getCategoryId() != null ? String.valueOf(product.getCategoryId()) : "",
+                product.getCategoryName() != null ? quote(product.getCategoryName()) : "",
+                String.valueOf(product.getExpiryStatus()),
+                String.valueOf(product.getDaysRemaining()));
+    }
+
+    /**
+     * Parses CSV with a header row into product requests, one per data line.
+     * Only syntax is checked here; field constraints are validated by the import itself.
+     *
+     * @throws IllegalArgumentException if the CSV is malformed or a value cannot be parsed
+     */
+    public static List<ProductRequest> read(String csv) {
+        List<List<String>> records = parse(csv);
+        if (records.isEmpty()) {
+            return List.of();
+        }
+
+        Map<String, Integer> columns = new HashMap<>();
+        List<String> header = records.get(0);
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        for (String required : List.of("name", "expirationdate")) {
+            if (!columns.containsKey(required)) {
+                throw new IllegalArgumentException("CSV header is missing the " + required + " column");
+            }
+        }
+
+        List<ProductRequest> requests = new ArrayList<>(records.size() - 1);
+        for (int row = 1; row < records.size(); row++) {
+            List<String> record = records.get(row);
+            try {
+                String expirationDate = field(record, columns, "expirationdate");
+                String quantity = field(record, columns, "quantity");
+                String categoryId = field(record, columns, "categoryid");
+                requests.add(new ProductRequest(
+                        field(record, columns, "name"),
+                        expirationDate.isEmpty() ? null : LocalDate.parse(expirationDate),
+                        quantity.isEmpty() ? 0 : Integer.parseInt(quantity),
+                        categoryId.isEmpty() ? null : Long.valueOf(categoryId),
+                        null));
+            } catch (DateTimeParseException | NumberFormatException e) {
+                throw new IllegalArgumentException("CSV row " + row + ": " + e.getMessage());
+            }
+        }
+        return requests;
+    }
+
+    private static String field(List<String> record, Map<String, Integer> columns, String column) {
+        Integer index = columns.get(column);
+        return index == null || index >= record.size() ? "" : record.get(index).trim();
+    }
+
+    private static String quote(String value) {
+        if (value.contains(",") || value.contains("\"") || value.contains("\n") || value.contains("\r")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+
+    // Splits the text into records of fields, honouring quoted fields with embedded commas, quotes and newlines
+    private static List<List<String>> parse(String csv) {
+        List<List<String>> records = new ArrayList<>();
+        List<String> record = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < csv.length(); i++) {
+            char c = csv.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < csv.length() && csv.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                record.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n' || c == '\r') {
+                if (c == '\r' && i + 1 < csv.length() && csv.charAt(i + 1) == '\n') {
+                    i++;
+                }
+                endRecord(records, record, field);
+                record = new ArrayList<>();
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("CSV ends inside a quoted field");
+        }
+        endRecord(records, record, field);
+        return records;
+    }
+
+    private static void endRecord(List<List<String>> records, List<String> record, StringBuilder field) {
+        record.add(field.toString());
+        field.setLength(0);
+        // Blank lines carry no data
+        if (record.size() > 1 || !record.get(0).isBlank()) {
+            records.add(record);
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package SmartPantry.demo.services;
+
+import SmartPantry.demo.dtos.notifications.ProductEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process fan-out of {@link ProductEvent}s to the server-sent event streams of their owner.
+ * <p>
+ * Streams are asynchronous requests, so an idle subscriber holds no thread, only its emitter and a
+ * bounded queue. Publishing never blocks: an event is offered to each queue and a virtual thread is
+ * started to drain it only while it has something to send. A subscriber whose queue is full is not
+ * keeping up and is disconnected rather than buffered further; its client reconnects and catches up
+ * with a delta read. Heartbeats only go to streams that have been silent for a whole interval, so a
+ * busy stream never carries them.
+ */
+@Component
+@Slf4j
+public class ProductEventBus {
+
+    private static final Object HEARTBEAT = new Object();
+
+    private final int bufferSize;
+    private final long heartbeatNanos;
+    private final long timeoutMillis;
+
+    private final Map<Long, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicLong evictions = new AtomicLong();
+    private final ExecutorService senders =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("product-events-", 0).factory());
+
+    public ProductEventBus(@Value("${products.events.buffer-size:32}") int bufferSize,
+                           @Value("${products.events.heartbeat-ms:25000}") long heartbeatMillis,
+                           @Value("${products.events.timeout-ms:1800000}") long timeoutMillis) {
+        this.bufferSize = bufferSize;
+        this.heartbeatNanos = TimeUnit.MILLISECONDS.toNanos(heartbeatMillis);
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Opens an event stream for a user, starting with a {@link ProductEvent.Type#READY} event.
+     *
+     * @param version the user's current collection version, sent in the first event
+     * @return the emitter to return from the handler
+     */
+    public SseEmitter subscribe(Long userId, String version) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber = register(userId, emitter);
+        offer(subscriber, ProductEvent.builder().type(ProductEvent.Type.READY).version(version).build());
+        return emitter;
+    }
+
+    /**
+     * Delivers an event to every stream of a user once the current transaction commits, or now
+     * outside a transaction. A rolled back write publishes nothing.
+     */
+    public void publish(Long userId, ProductEvent event) {
+        afterCommit(() -> {
+            Set<Subscriber> userSubscribers = subscribers.get(userId);
+            if (userSubscribers != null) {
+                userSubscribers.forEach(subscriber -> offer(subscriber, event));
+            }
+        });
+    }
+
+    /**
+     * Delivers the same event to every open stream, for changes that concern all users at once.
+     */
+    public void broadcast(ProductEvent event) {
+        subscribers.values().forEach(userSubscribers ->
+                userSubscribers.forEach(subscriber -> offer(subscriber, event)));
+    }
+
+    /**
+     * Sends a comment line to streams that have sent nothing for a whole interval, so proxies do not
+     * close them as idle and clients notice a dead connection.
+     */
+    @Scheduled(fixedDelayString = "${products.events.heartbeat-ms:25000}")
+    public void sendHeartbeats() {
+        long now = System.nanoTime();
+        subscribers.values().forEach(userSubscribers -> userSubscribers.forEach(subscriber -> {
+            if (now - subscriber.lastSent >= heartbeatNanos && subscriber.queue.isEmpty()) {
+                offer(subscriber, HEARTBEAT);
+            }
+        }));
+    }
+
+    public int subscriberCount() {
+        return subscribers.values().stream().mapToInt(Set::size).sum();
+    }
+
+    public long evictionCount() {
+        return evictions.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscribers.values().forEach(userSubscribers -> userSubscribers.forEach(subscriber -> {
+            subscriber.closed = true;
+            subscriber.emitter.complete();
+        }));
+        subscribers.clear();
+        senders.shutdown();
+    }
+
+    Subscriber register(Long userId, SseEmitter emitter) {
+        Subscriber subscriber = new Subscriber(userId, emitter, new ArrayBlockingQueue<>(bufferSize));
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(e -> remove(subscriber));
+        // Added inside compute so it cannot race with remove() dropping the user's emptied set
+        subscribers.compute(userId, (id, current) -> {
+            Set<Subscriber> userSubscribers = current != null ? current : ConcurrentHashMap.newKeySet();
+            userSubscribers.add(subscriber);
+            return userSubscribers;
+        });
+        return subscriber;
+    }
+
+    private void offer(Subscriber subscriber, Object message) {
+        if (subscriber.closed) {
+            return;
+        }
+        if (!subscriber.queue.offer(message)) {
+            evict(subscriber);
+            return;
+        }
+        scheduleDrain(subscriber);
+    }
+
+    private void scheduleDrain(Subscriber subscriber) {
+        if (subscriber.draining.compareAndSet(false, true)) {
+            senders.execute(() -> drain(subscriber));
+        }
+    }
+
+    /**
+     * Sends everything queued for a subscriber. Only one drain runs per subscriber at a time, so its
+     * events go out in publication order; a message queued while the drain was finishing starts another.
+     */
+    private void drain(Subscriber subscriber) {
+        try {
+            Object message;
+            while (!subscriber.closed && (message = subscriber.queue.poll()) != null) {
+                send(subscriber.emitter, message);
+                subscriber.lastSent = System.nanoTime();
+            }
+        } catch (IOException | IllegalStateException e) {
+            // The client went away; the container reports it through onError or onCompletion as well
+            remove(subscriber);
+            return;
+        } finally {
+            subscriber.draining.set(false);
+        }
+        if (!subscriber.closed && !subscriber.queue.isEmpty()) {
+            scheduleDrain(subscriber);
+        }
+    }
+
+    private void send(SseEmitter emitter, Object message) throws IOException {
+        if (message == HEARTBEAT) {
+            emitter.send(SseEmitter.event().comment("heartbeat"));
+            return;
+        }
+        ProductEvent event = (ProductEvent) message;
+        SseEmitter.SseEventBuilder builder = SseEmitter.event()
+                .name(event.getType().name().toLowerCase(Locale.ROOT))
+                .data(event, MediaType.APPLICATION_JSON);
+        if (event.getVersion() != null) {
+            builder.id(event.getVersion());
+        }
+        emitter.send(builder);
+    }
+
+    /**
+     * Disconnects a subscriber that let its queue fill up. Completing waits for a send in progress,
+     * so it runs on a sender thread rather than the publisher's.
+     */
+    private void evict(Subscriber subscriber) {
+        if (remove(subscriber)) {
+            evictions.incrementAndGet();
+            log.warn("Closing product event stream of user {}: {} events pending", subscriber.userId, bufferSize);
+            senders.execute(subscriber.emitter::complete);
+        }
+    }
+
+    private boolean remove(Subscriber subscriber) {
+        subscriber.closed = true;
+        Set<Subscriber> userSubscribers = subscribers.get(subscriber.userId);
+        if (userSubscribers == null || !userSubscribers.remove(subscriber)) {
+            return false;
+        }
+        subscribers.computeIfPresent(subscriber.userId, (id, current) -> current.isEmpty() ? null : current);
+        subscriber.queue.clear();
+        return true;
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    static final class Subscriber {
+        private final Long userId;
+        private final SseEmitter emitter;
+        private final BlockingQueue<Object> queue;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile long lastSent = System.nanoTime();
+        private volatile boolean closed;
+
+        private Subscriber(Long userId, SseEmitter emitter, BlockingQueue<Object> queue) {
+            this.userId = userId;
+            this.emitter = emitter;
+            this.queue = queue;
+        }
+    }
+}
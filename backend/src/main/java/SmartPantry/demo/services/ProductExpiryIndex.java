@@ -0,0 +1,259 @@
+package SmartPantry.demo.services;
+
+import SmartPantry.demo.entities.User;
+import SmartPantry.demo.repositories.ProductRepository;
+import SmartPantry.demo.repositories.projections.ProductView;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.UnaryOperator;
+
+/**
+ * Optional in-memory index of each user's products ordered by expiration date, so a status
+ * query is two binary searches over a primitive array instead of a range scan.
+ * <p>
+ * A user's index is an immutable snapshot, loaded on their first query and replaced copy-on-write
+ * by the writes of this node once they commit. Each snapshot remembers the product and category
+ * collection versions it reflects; a query that finds either version moved on, for example after a
+ * write on another node, reloads instead. Memory is bounded by the total number of indexed products,
+ * evicting the least recently queried users first.
+ */
+@Component
+@RequiredArgsConstructor
+public class ProductExpiryIndex {
+
+    private static final Comparator<ProductView> BY_EXPIRATION =
+            Comparator.comparing(ProductView::getExpirationDate).thenComparing(ProductView::getId);
+
+    private final ProductRepository productRepository;
+    private final CollectionVersionService collectionVersionService;
+    private final CategoryCache categoryCache;
+
+    @Value("${products.expiry-index.enabled:false}")
+    private boolean enabled;
+
+    @Value("${products.expiry-index.max-entries:200000}")
+    private long maxEntries;
+
+    private final Map<Long, Snapshot> snapshots = new ConcurrentHashMap<>();
+    private final AtomicLong entries = new AtomicLong();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the user's products expiring between two dates, ordered by expiration date and id.
+     *
+     * @param from the first expiration date included, or {@code null} for no lower bound
+     * @param to the last expiration date included, or {@code null} for no upper bound
+     * @return the products, or empty if the index is disabled or the user has more products than it may hold
+     */
+    public Optional<List<ProductView>> findExpiringBetween(User user, LocalDate from, LocalDate to) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        Snapshot snapshot = currentSnapshot(user);
+        if (snapshot == null) {
+            return Optional.empty();
+        }
+        snapshot.lastUsed = System.nanoTime();
+
+        int start = from == null ? 0 : snapshot.firstOnOrAfter(from.toEpochDay());
+        int end = to == null ? snapshot.days.length : snapshot.firstOnOrAfter(to.toEpochDay() + 1);
+        return Optional.of(start >= end ? List.of() : Arrays.asList(snapshot.views).subList(start, end));
+    }
+
+    /**
+     * Records a created or updated product once the current transaction commits.
+     *
+     * @param version the product collection version the write was stamped with
+     */
+    public void onSaved(Long userId, long version, ProductView product) {
+        afterCommit(() -> apply(userId, version, snapshot -> snapshot.with(version, product)));
+    }
+
+    /**
+     * Records a deleted product once the current transaction commits.
+     *
+     * @param version the product collection version the delete was stamped with
+     */
+    public void onDeleted(Long userId, long version, Long productId) {
+        afterCommit(() -> apply(userId, version, snapshot -> snapshot.without(version, productId)));
+    }
+
+    public int getUserCount() {
+        return snapshots.size();
+    }
+
+    public long getEntryCount() {
+        return entries.get();
+    }
+
+    private Snapshot currentSnapshot(User user) {
+        // Versions are read before the rows: a write committing in between makes the snapshot look
+        // older than it is, so it is reloaded once more instead of serving a missed write
+        long version = collectionVersionService.current(CollectionVersionService.products(user.getId()));
+        long categoryVersion = categoryCache.getVersion();
+        Snapshot snapshot = snapshots.get(user.getId());
+        if (snapshot != null && snapshot.version == version && snapshot.categoryVersion == categoryVersion) {
+            return snapshot;
+        }
+
+        List<ProductView> products = new ArrayList<>(productRepository.findViewsByUser(user));
+        products.sort(BY_EXPIRATION);
+        Snapshot loaded = new Snapshot(version, categoryVersion, products.toArray(ProductView[]::new));
+        if (loaded.days.length > maxEntries) {
+            remove(user.getId());
+            return null;
+        }
+        Snapshot previous = snapshots.put(user.getId(), loaded);
+        entries.addAndGet(loaded.days.length - (previous == null ? 0 : previous.days.length));
+        evictIfOverBudget();
+        return loaded;
+    }
+
+    /**
+     * Applies a committed write to a user's snapshot if it directly follows the snapshot's version,
+     * otherwise drops the snapshot so the next query reloads it.
+     */
+    private void apply(Long userId, long version, UnaryOperator<Snapshot> change) {
+        snapshots.computeIfPresent(userId, (id, snapshot) -> {
+            Snapshot updated = snapshot.version == version - 1 ? change.apply(snapshot) : null;
+            entries.addAndGet((updated == null ? 0 : updated.days.length) - snapshot.days.length);
+            return updated;
+        });
+        evictIfOverBudget();
+    }
+
+    private void remove(Long userId) {
+        Snapshot removed = snapshots.remove(userId);
+        if (removed != null) {
+            entries.addAndGet(-removed.days.length);
+        }
+    }
+
+    /**
+     * Evicts the least recently queried users until the index is back under a tenth below its budget,
+     * so a full index does not sort its users on every load. One caller evicts while the others carry on.
+     */
+    private void evictIfOverBudget() {
+        if (entries.get() <= maxEntries || !evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            long target = maxEntries - maxEntries / 10;
+            List<Map.Entry<Long, Snapshot>> coldestFirst = new ArrayList<>(snapshots.entrySet());
+            coldestFirst.sort(Comparator.comparingLong(entry -> entry.getValue().lastUsed));
+            for (Map.Entry<Long, Snapshot> entry : coldestFirst) {
+                if (entries.get() <= target) {
+                    break;
+                }
+                if (snapshots.remove(entry.getKey(), entry.getValue())) {
+                    entries.addAndGet(-entry.getValue().days.length);
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!enabled) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * One user's products ordered by expiration date and id, with the epoch day of each product in a
+     * parallel primitive array for the binary searches.
+     */
+    private static final class Snapshot {
+
+        private final long version;
+        private final long categoryVersion;
+        private final long[] days;
+        private final ProductView[] views;
+        private volatile long lastUsed = System.nanoTime();
+
+        private Snapshot(long version, long categoryVersion, ProductView[] views) {
+            this.version = version;
+            this.categoryVersion = categoryVersion;
+            this.views = views;
+            this.days = new long[views.length];
+            for (int i = 0; i < views.length; i++) {
+                days[i] = views[i].getExpirationDate().toEpochDay();
+            }
+        }
+
+        /**
+         * @return the index of the first product expiring on or after {@code day}
+         */
+        private int firstOnOrAfter(long day) {
+            int low = 0;
+            int high = days.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (days[middle] < day) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        private Snapshot with(long newVersion, ProductView product) {
+            List<ProductView> products = new ArrayList<>(views.length + 1);
+            for (ProductView view : views) {
+                if (!view.getId().equals(product.getId())) {
+                    products.add(view);
+                }
+            }
+            int position = Collections.binarySearch(products, product, BY_EXPIRATION);
+            products.add(position < 0 ? -position - 1 : position, product);
+            return copy(newVersion, products);
+        }
+
+        private Snapshot without(long newVersion, Long productId) {
+            List<ProductView> products = new ArrayList<>(views.length);
+            for (ProductView view : views) {
+                if (!view.getId().equals(productId)) {
+                    products.add(view);
+                }
+            }
+            return copy(newVersion, products);
+        }
+
+        private Snapshot copy(long newVersion, List<ProductView> products) {
+            Snapshot copy = new Snapshot(newVersion, categoryVersion, products.toArray(ProductView[]::new));
+            copy.lastUsed = lastUsed;
+            return copy;
+        }
+    }
+}
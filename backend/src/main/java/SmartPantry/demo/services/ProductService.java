@@ -1,23 +1,65 @@
 package SmartPantry.demo.services;
 
+import SmartPantry.demo.dtos.notifications.ProductEvent;
+import SmartPantry.demo.dtos.requests.ImportMode;
+import SmartPantry.demo.dtos.requests.NameMatch;
+import SmartPantry.demo.dtos.requests.ProductFilter;
+import SmartPantry.demo.dtos.requests.ProductOperation;
+import SmartPantry.demo.dtos.requests.ProductOperationType;
 import SmartPantry.demo.dtos.requests.ProductRequest;
+import SmartPantry.demo.dtos.responses.BulkImportError;
+import SmartPantry.demo.dtos.responses.BulkImportResponse;
+import SmartPantry.demo.dtos.responses.CategorySummaryResponse;
+import SmartPantry.demo.dtos.responses.ProductBatchResponse;
+import SmartPantry.demo.dtos.responses.ProductChangesResponse;
+import SmartPantry.demo.dtos.responses.ProductOperationResult;
+import SmartPantry.demo.dtos.responses.ProductPageResponse;
 import SmartPantry.demo.dtos.responses.ProductResponse;
+import SmartPantry.demo.dtos.responses.ProductSummaryResponse;
+import SmartPantry.demo.dtos.responses.StatusSummaryResponse;
 import SmartPantry.demo.entities.Category;
 import SmartPantry.demo.entities.Product;
+import SmartPantry.demo.entities.ProductTombstone;
 import SmartPantry.demo.entities.User;
 import SmartPantry.demo.entities.enums.ExpiryStatus;
+import SmartPantry.demo.exceptions.ConflictException;
 import SmartPantry.demo.exceptions.ResourceNotFoundException;
 import SmartPantry.demo.exceptions.UnauthorizedAccessException;
 import SmartPantry.demo.repositories.CategoryRepository;
 import SmartPantry.demo.repositories.ProductRepository;
+import SmartPantry.demo.repositories.ProductSearchRepository;
+import SmartPantry.demo.repositories.ProductTombstoneRepository;
+import SmartPantry.demo.repositories.projections.ProductSummaryRow;
+import SmartPantry.demo.repositories.projections.ProductView;
 import SmartPantry.demo.services.interfaces.IProductService;
 import SmartPantry.demo.services.interfaces.IUserService;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Service implementation for managing product operations within the pantry.
@@ -27,24 +69,157 @@ import java.util.List;
 @RequiredArgsConstructor
 public class ProductService implements IProductService {
 
+    // The quantity column is an int; writes that would go past it are rejected rather than wrapped
+    static final int MAX_QUANTITY = Integer.MAX_VALUE;
+
     private final ProductRepository productRepository;
     private final CategoryRepository categoryRepository;
+    private final CategoryCache categoryCache;
     private final IUserService userService;
+    private final EntityManager entityManager;
+    private final Validator validator;
+    private final CollectionVersionService collectionVersionService;
+    private final ProductTombstoneRepository productTombstoneRepository;
+    private final ProductExpiryIndex productExpiryIndex;
+    private final ProductEventBus productEventBus;
+
+    @Value("${products.page.max-size:100}")
+    private int maxPageSize;
+
+    @Value("${products.import.max-rows:5000}")
+    private int maxImportRows;
+
+    @Value("${products.batch.max-operations:500}")
+    private int maxBatchOperations;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int batchSize;
 
     /**
-     * Retrieves all products belonging to the currently authenticated user.
+     * Returns an opaque token that changes whenever a response about the current user's products may change:
+     * a write to one of their products, a category change, or a new day, since days remaining and expiry
+     * status are computed against today. Costs one primary-key lookup; the category version is cached.
      *
+     * @return the current version token, usable as an ETag and as the {@code since} of a delta read
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public String getCollectionVersion() {
+        return currentVersion(userService.getCurrentUserId()).format();
+    }
+
+    /**
+     * Retrieves the current user's products written and deleted after a version token.
+     * The version is read before the rows, so a write committing in between is reported now and again
+     * on the next call rather than never.
+     *
+     * @param since a token from {@link #getCollectionVersion()} or a previous delta, or {@code null} for everything
+     * @return the changed products and deleted ids, or the whole collection with {@code full} set when the token
+     *         is from another day or user, or predates a category change
+     * @throws IllegalArgumentException if the token is malformed
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public ProductChangesResponse getChangesForCurrentUser(String since) {
+        User currentUser = userService.getCurrentUserReference();
+        LocalDate today = LocalDate.now();
+        VersionToken current = currentVersion(currentUser.getId());
+        VersionToken from = since == null || since.isBlank() ? null : VersionToken.parse(since);
+
+        boolean full = from == null || !from.isContinuedBy(current);
+        List<ProductView> changed = full
+                ? productRepository.findViewsByUser(currentUser)
+                : productRepository.findViewsByUserChangedSince(currentUser, from.products());
+        List<Long> deleted = full
+                ? List.of()
+                : productTombstoneRepository.findDeletedSince(currentUser.getId(), from.products());
+
+        return ProductChangesResponse.builder()
+                .version(current.format())
+                .full(full)
+                .changed(changed.stream().map(product -> mapToResponse(product, today)).toList())
+                .deleted(deleted)
+                .build();
+    }
+
+    /**
+     * Retrieves the products of the currently authenticated user that match every filter set on
+     * {@code filter}, as one dynamically built query.
+     *
+     * @param filter the combinable criteria; an empty filter lists every product by expiration date
      * @return a list of {@link ProductResponse} with calculated expiration status
+     * @throws IllegalArgumentException if the sort or the date range is invalid
      */
     @Override
-    public List<ProductResponse> getAllForCurrentUser() {
-        User currentUser = userService.getCurrentUserEntity();
-        List<Product> products = productRepository.findByUser(currentUser);
+    @Transactional(readOnly = true)
+    public List<ProductResponse> getAllForCurrentUser(ProductFilter filter) {
+        if (filter.getExpiresFrom() != null && filter.getExpiresTo() != null
+                && filter.getExpiresFrom().isAfter(filter.getExpiresTo())) {
+            throw new IllegalArgumentException("expiresFrom must not be after expiresTo");
+        }
+        User currentUser = userService.getCurrentUserReference();
+        LocalDate today = LocalDate.now();
+        List<ProductView> products = productRepository.search(
+                currentUser, filter, categoriesMatchingName(filter), today, parseSort(filter.getSort()));
         return products.stream()
-                .map(this::mapToResponse)
+                .map(product -> mapToResponse(product, today))
                 .toList();
     }
 
+    /**
+     * Retrieves one page of the current user's products ordered by expiration date and ID.
+     * Pages are addressed with an opaque keyset cursor instead of an offset, so every page
+     * costs the same index range scan no matter how deep the client has paged.
+     *
+     * @param cursor the {@code nextCursor} of the previous page, or {@code null} for the first page
+     * @param limit the requested page size, capped at the configured maximum
+     * @return a {@link ProductPageResponse} with the page items and the cursor of the next page
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public ProductPageResponse getPageForCurrentUser(String cursor, int limit) {
+        User currentUser = userService.getCurrentUserReference();
+        int pageSize = Math.min(Math.max(limit, 1), maxPageSize);
+
+        // Fetch one extra row to know whether another page follows
+        Limit fetchLimit = Limit.of(pageSize + 1);
+        List<ProductView> products;
+        if (cursor == null || cursor.isBlank()) {
+            products = productRepository.findFirstPageByUser(currentUser, fetchLimit);
+        } else {
+            Product position = decodeCursor(cursor);
+            products = productRepository.findPageByUserAfter(
+                    currentUser, position.getExpirationDate(), position.getId(), fetchLimit);
+        }
+
+        boolean hasNext = products.size() > pageSize;
+        List<ProductView> page = hasNext ? products.subList(0, pageSize) : products;
+        LocalDate today = LocalDate.now();
+
+        return ProductPageResponse.builder()
+                .items(page.stream().map(product -> mapToResponse(product, today)).toList())
+                .nextCursor(hasNext ? encodeCursor(page.get(page.size() - 1)) : null)
+                .build();
+    }
+
+    /**
+     * Streams every product of the current user, ordered by expiration date and ID, to the
+     * given consumer. Rows are read with a database cursor as projections, so neither the
+     * result set nor the persistence context ever holds the whole list.
+     *
+     * @param consumer receives each {@link ProductResponse} in order
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void streamForCurrentUser(Consumer<ProductResponse> consumer) {
+        User currentUser = userService.getCurrentUserReference();
+        LocalDate today = LocalDate.now();
+        try (Stream<ProductView> products = productRepository.streamByUser(currentUser)) {
+            products.forEach(product -> consumer.accept(mapToResponse(product, today)));
+        }
+    }
+
     /**
      * Retrieves a specific product by its ID, verifying ownership.
      *
@@ -54,6 +229,7 @@ public class ProductService implements IProductService {
      * @throws UnauthorizedAccessException if the product does not belong to the current user
      */
     @Override
+    @Transactional(readOnly = true)
     public ProductResponse getById(Long id) {
         Product product = findProductById(id);
         verifyOwnership(product);
@@ -69,24 +245,222 @@ public class ProductService implements IProductService {
      * @throws ResourceNotFoundException if the provided category ID does not exist
      */
     @Override
+    @Transactional
     public ProductResponse create(ProductRequest request) {
-        User currentUser = userService.getCurrentUserEntity();
+        User currentUser = userService.getCurrentUserReference();
 
         Product product = Product.builder()
                 .name(request.getName())
                 .expirationDate(request.getExpirationDate())
                 .quantity(request.getQuantity())
                 .user(currentUser)
+                .changeVersion(bumpVersion(currentUser.getId()))
                 .build();
 
         if (request.getCategoryId() != null) {
-            Category category = categoryRepository.findById(request.getCategoryId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Category", request.getCategoryId()));
-            product.setCategory(category);
+            product.setCategory(getCategoryReference(request.getCategoryId()));
         }
 
+        applyExpiryStatus(product);
         Product savedProduct = productRepository.save(product);
-        return mapToResponse(savedProduct);
+        productExpiryIndex.onSaved(currentUser.getId(), savedProduct.getChangeVersion(), toView(savedProduct));
+        ProductResponse response = mapToResponse(savedProduct);
+        publishEvent(ProductEvent.Type.CREATED, currentUser.getId(), savedProduct.getChangeVersion(),
+                savedProduct.getId(), response);
+        return response;
+    }
+
+    /**
+     * Imports many products for the current user in a single transaction.
+     * Every row is validated up front and categories are resolved against the category cache; the
+     * rows are then inserted in JDBC batches, clearing the persistence context after each batch.
+     *
+     * @param requests the rows to import, in submission order
+     * @param mode whether an invalid row rejects the whole import or is skipped and reported
+     * @return how many rows were imported and why any were rejected
+     * @throws IllegalArgumentException if more rows are submitted than a single import accepts
+     */
+    @Override
+    @Transactional
+    public BulkImportResponse importProducts(List<ProductRequest> requests, ImportMode mode) {
+        if (requests.size() > maxImportRows) {
+            throw new IllegalArgumentException("A bulk import accepts at most " + maxImportRows + " products");
+        }
+        User currentUser = userService.getCurrentUserReference();
+        Map<Long, String> categories = categoryCache.getAll();
+
+        List<BulkImportError> errors = new ArrayList<>();
+        List<ProductRequest> accepted = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            List<String> messages = validateImportRow(requests.get(i), categories);
+            if (messages.isEmpty()) {
+                accepted.add(requests.get(i));
+            } else {
+                errors.add(new BulkImportError(i + 1, messages));
+            }
+        }
+        if (mode == ImportMode.ALL_OR_NOTHING && !errors.isEmpty()) {
+            accepted = List.of();
+        }
+        Long changeVersion = accepted.isEmpty() ? null : bumpVersion(currentUser.getId());
+
+        for (int i = 0; i < accepted.size(); i++) {
+            ProductRequest request = accepted.get(i);
+            Product product = Product.builder()
+                    .name(request.getName())
+                    .expirationDate(request.getExpirationDate())
+                    .quantity(request.getQuantity())
+                    .user(currentUser)
+                    .changeVersion(changeVersion)
+                    .category(request.getCategoryId() != null
+                            ? categoryRepository.getReferenceById(request.getCategoryId())
+                            : null)
+                    .build();
+            applyExpiryStatus(product);
+            productRepository.save(product);
+
+            if ((i + 1) % batchSize == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+
+        if (changeVersion != null) {
+            publishEvent(ProductEvent.Type.RESYNC, currentUser.getId(), changeVersion, null, null);
+        }
+
+        return BulkImportResponse.builder()
+                .mode(mode)
+                .received(requests.size())
+                .imported(accepted.size())
+                .errors(errors)
+                .build();
+    }
+
+    /**
+     * Applies a list of updates, deletions and quantity adjustments to the current user's products in
+     * one transaction. Every target is loaded by one query restricted to the user, so ownership is
+     * checked for the whole batch at once; updates are then flushed in JDBC batches, quantity
+     * adjustments run as conditional updates and deletions as one statement.
+     *
+     * @param operations the operations, in submission order; each product may be targeted once
+     * @param mode whether a failed operation rejects the whole batch or is skipped and reported
+     * @return one result per operation
+     * @throws IllegalArgumentException if more operations are submitted than a single batch accepts
+     */
+    @Override
+    @Transactional
+    public ProductBatchResponse applyBatch(List<ProductOperation> operations, ImportMode mode) {
+        if (operations.size() > maxBatchOperations) {
+            throw new IllegalArgumentException("A batch accepts at most " + maxBatchOperations + " operations");
+        }
+        User currentUser = userService.getCurrentUserReference();
+        Map<Long, String> categories = categoryCache.getAll();
+
+        List<Long> ids = operations.stream()
+                .filter(operation -> operation != null && operation.getId() != null)
+                .map(ProductOperation::getId)
+                .distinct()
+                .toList();
+        Map<Long, Product> products = new HashMap<>();
+        if (!ids.isEmpty()) {
+            productRepository.findAllByUserAndIdIn(currentUser, ids)
+                    .forEach(product -> products.put(product.getId(), product));
+        }
+
+        List<ProductOperationResult> results = new ArrayList<>(operations.size());
+        Set<Long> targeted = new HashSet<>();
+        boolean failed = false;
+        for (int i = 0; i < operations.size(); i++) {
+            ProductOperation operation = operations.get(i);
+            List<String> messages = validateOperation(operation, categories, targeted);
+            ProductOperationResult.Outcome outcome = ProductOperationResult.Outcome.APPLIED;
+            if (!messages.isEmpty()) {
+                outcome = ProductOperationResult.Outcome.INVALID;
+            } else if (!products.containsKey(operation.getId())) {
+                outcome = ProductOperationResult.Outcome.NOT_FOUND;
+                messages = List.of("Product not found with id: " + operation.getId());
+            } else if (operation.getOp() == ProductOperationType.ADJUST_QUANTITY
+                    && adjustedQuantity(products.get(operation.getId()), operation) < 1) {
+                outcome = ProductOperationResult.Outcome.INVALID;
+                messages = List.of("quantityDelta: would leave a quantity below 1");
+            } else if (operation.getOp() == ProductOperationType.ADJUST_QUANTITY
+                    && adjustedQuantity(products.get(operation.getId()), operation) > MAX_QUANTITY) {
+                outcome = ProductOperationResult.Outcome.INVALID;
+                messages = List.of("quantityDelta: would leave a quantity above " + MAX_QUANTITY);
+            } else if (operation.getOp() == ProductOperationType.UPDATE
+                    && isStale(products.get(operation.getId()), operation.getProduct())) {
+                outcome = ProductOperationResult.Outcome.CONFLICT;
+                messages = List.of("product.lockVersion: the product has been modified since");
+            }
+            failed |= outcome != ProductOperationResult.Outcome.APPLIED;
+            results.add(ProductOperationResult.builder()
+                    .index(i + 1)
+                    .id(operation != null ? operation.getId() : null)
+                    .op(operation != null ? operation.getOp() : null)
+                    .outcome(outcome)
+                    .messages(messages)
+                    .build());
+        }
+
+        List<ProductOperationResult> accepted = results.stream()
+                .filter(result -> result.getOutcome() == ProductOperationResult.Outcome.APPLIED)
+                .toList();
+        if (mode == ImportMode.ALL_OR_NOTHING && failed) {
+            accepted.forEach(result -> result.setOutcome(ProductOperationResult.Outcome.SKIPPED));
+            accepted = List.of();
+        }
+
+        if (!accepted.isEmpty()) {
+            long version = bumpVersion(currentUser.getId());
+            List<Long> deleted = new ArrayList<>();
+            List<ProductOperation> adjusted = new ArrayList<>();
+            for (ProductOperationResult result : accepted) {
+                ProductOperation operation = operations.get(result.getIndex() - 1);
+                Product product = products.get(operation.getId());
+                switch (operation.getOp()) {
+                    case UPDATE -> {
+                        applyRequest(product, operation.getProduct());
+                        product.setChangeVersion(version);
+                    }
+                    case ADJUST_QUANTITY -> adjusted.add(operation);
+                    case DELETE -> deleted.add(product.getId());
+                }
+            }
+            // One JDBC batch of versioned updates; a row written concurrently fails the whole batch
+            entityManager.flush();
+            // Conditional updates like consume and restock, so only the quantity is written
+            for (ProductOperation operation : adjusted) {
+                Product product = products.get(operation.getId());
+                if (productRepository.adjustQuantity(product.getId(), currentUser.getId(),
+                        operation.getQuantityDelta(), product.getLockVersion(), version) == 0) {
+                    throw new ObjectOptimisticLockingFailureException(Product.class, product.getId());
+                }
+                // Detached first so the copy describing the new row is never flushed over it
+                entityManager.detach(product);
+                product.setQuantity((int) adjustedQuantity(product, operation));
+                product.setLockVersion(product.getLockVersion() + 1);
+                product.setChangeVersion(version);
+            }
+            for (ProductOperationResult result : accepted) {
+                if (result.getOp() != ProductOperationType.DELETE) {
+                    result.setProduct(mapToResponse(products.get(result.getId())));
+                }
+            }
+            if (!deleted.isEmpty()) {
+                productTombstoneRepository.insertForProducts(deleted, version, LocalDate.now());
+                productRepository.deleteAllByUserAndIdIn(currentUser, deleted);
+            }
+            // Too many changes to describe one by one without overrunning the event buffers
+            publishEvent(ProductEvent.Type.RESYNC, currentUser.getId(), version, null, null);
+        }
+
+        return ProductBatchResponse.builder()
+                .mode(mode)
+                .received(operations.size())
+                .applied(accepted.size())
+                .results(results)
+                .build();
     }
 
     /**
@@ -97,26 +471,89 @@ public class ProductService implements IProductService {
      * @return the updated {@link ProductResponse}
      * @throws ResourceNotFoundException if the product or category does not exist
      * @throws UnauthorizedAccessException if the product does not belong to the current user
+     * @throws ObjectOptimisticLockingFailureException if the request names a lock version the product has moved
+     *         past, or another write to the product commits first
      */
     @Override
+    @Transactional
     public ProductResponse update(Long id, ProductRequest request) {
         Product existingProduct = findProductById(id);
         verifyOwnership(existingProduct);
+        if (isStale(existingProduct, request)) {
+            throw new ObjectOptimisticLockingFailureException(Product.class, id);
+        }
+        existingProduct.setChangeVersion(bumpVersion(existingProduct.getUser().getId()));
+        applyRequest(existingProduct, request);
+        // Flushed here so the response carries the incremented lock version
+        Product updatedProduct = productRepository.saveAndFlush(existingProduct);
+        productExpiryIndex.onSaved(updatedProduct.getUser().getId(), updatedProduct.getChangeVersion(),
+                toView(updatedProduct));
+        ProductResponse response = mapToResponse(updatedProduct);
+        publishEvent(ProductEvent.Type.UPDATED, updatedProduct.getUser().getId(),
+                updatedProduct.getChangeVersion(), updatedProduct.getId(), response);
+        return response;
+    }
 
-        existingProduct.setName(request.getName());
-        existingProduct.setExpirationDate(request.getExpirationDate());
-        existingProduct.setQuantity(request.getQuantity());
+    /**
+     * Takes an amount out of a product as a single conditional UPDATE, so concurrent consumers can
+     * neither lose each other's changes nor take more than is left. Taking exactly what is left deletes
+     * the product with a conditional DELETE instead.
+     *
+     * @param id the ID of the product to consume from
+     * @param amount how much to take, at least 1
+     * @return the product after the change, or empty if it was used up and deleted
+     * @throws ResourceNotFoundException if the product does not exist
+     * @throws UnauthorizedAccessException if the product does not belong to the current user
+     * @throws ConflictException if less than {@code amount} is left
+     */
+    @Override
+    @Transactional
+    public Optional<ProductResponse> consume(Long id, int amount) {
+        Long userId = userService.getCurrentUserId();
+        long version = bumpVersion(userId);
+        if (productRepository.consume(id, userId, amount, version) == 1) {
+            return Optional.of(quantityChanged(userId, version, findProductById(id)));
+        }
 
-        if (request.getCategoryId() != null) {
-            Category category = categoryRepository.findById(request.getCategoryId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Category", request.getCategoryId()));
-            existingProduct.setCategory(category);
-        } else {
-            existingProduct.setCategory(null);
+        if (productRepository.consumeAll(id, userId, amount) == 1) {
+            productTombstoneRepository.save(ProductTombstone.builder()
+                    .productId(id)
+                    .userId(userId)
+                    .changeVersion(version)
+                    .deletedOn(LocalDate.now())
+                    .build());
+            productExpiryIndex.onDeleted(userId, version, id);
+            publishEvent(ProductEvent.Type.DELETED, userId, version, id, null);
+            return Optional.empty();
         }
 
-        Product updatedProduct = productRepository.save(existingProduct);
-        return mapToResponse(updatedProduct);
+        Product product = findProductById(id);
+        verifyOwnership(product);
+        throw new ConflictException("Cannot consume " + amount + " of product " + id
+                + "; only " + product.getQuantity() + " left");
+    }
+
+    /**
+     * Adds an amount to a product as a single conditional UPDATE.
+     *
+     * @param id the ID of the product to restock
+     * @param amount how much to add, at least 1
+     * @return the product after the change
+     * @throws ResourceNotFoundException if the product does not exist
+     * @throws UnauthorizedAccessException if the product does not belong to the current user
+     * @throws ConflictException if the quantity would go past {@link #MAX_QUANTITY}
+     */
+    @Override
+    @Transactional
+    public ProductResponse restock(Long id, int amount) {
+        Long userId = userService.getCurrentUserId();
+        long version = bumpVersion(userId);
+        if (productRepository.restock(id, userId, amount, MAX_QUANTITY, version) == 0) {
+            verifyOwnership(findProductById(id));
+            throw new ConflictException("Cannot restock " + amount + " of product " + id
+                    + "; the quantity would exceed " + MAX_QUANTITY);
+        }
+        return quantityChanged(userId, version, findProductById(id));
     }
 
     /**
@@ -127,47 +564,257 @@ public class ProductService implements IProductService {
      * @throws UnauthorizedAccessException if the product does not belong to the current user
      */
     @Override
+    @Transactional
     public void delete(Long id) {
         Product existingProduct = findProductById(id);
         verifyOwnership(existingProduct);
+        Long userId = existingProduct.getUser().getId();
+        long version = bumpVersion(userId);
 
+        productTombstoneRepository.save(ProductTombstone.builder()
+                .productId(existingProduct.getId())
+                .userId(userId)
+                .changeVersion(version)
+                .deletedOn(LocalDate.now())
+                .build());
         productRepository.delete(existingProduct);
+        productExpiryIndex.onDeleted(userId, version, existingProduct.getId());
+        publishEvent(ProductEvent.Type.DELETED, userId, version, existingProduct.getId(), null);
     }
 
     /**
      * Retrieves products filtered by their expiration status for the current user.
+     * Served from the {@link ProductExpiryIndex} when it is enabled and holds the user.
      *
      * @param status the {@link ExpiryStatus} to filter by
      * @return a list of products matching the status
      */
     @Override
+    @Transactional(readOnly = true)
     public List<ProductResponse> getByStatus(ExpiryStatus status) {
-        User currentUser = userService.getCurrentUserEntity();
+        User currentUser = userService.getCurrentUserReference();
         LocalDate today = LocalDate.now();
         LocalDate nextWeek = today.plusDays(7);
 
-        List<Product> products = getProductsByStatus(currentUser, status, today, nextWeek);
+        List<ProductView> products = (switch (status) {
+            case RED -> productExpiryIndex.findExpiringBetween(currentUser, null, today.minusDays(1));
+            case YELLOW -> productExpiryIndex.findExpiringBetween(currentUser, today, nextWeek);
+            case GREEN -> productExpiryIndex.findExpiringBetween(currentUser, nextWeek.plusDays(1), null);
+        }).orElseGet(() -> getProductsByStatus(currentUser, status, today, nextWeek));
 
         return products.stream()
-                .map(this::mapToResponse)
+                .map(product -> mapToResponse(product, today))
                 .toList();
     }
 
+    /**
+     * Summarizes the current user's pantry: counts and total quantity per expiry status and per category,
+     * computed by a single grouped query, plus the next products to expire.
+     *
+     * @param upcoming how many soonest-expiring, not yet expired products to include (capped at the page size limit)
+     * @return the pantry summary
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public ProductSummaryResponse getSummaryForCurrentUser(int upcoming) {
+        User currentUser = userService.getCurrentUserReference();
+        LocalDate today = LocalDate.now();
+
+        Map<ExpiryStatus, StatusSummaryResponse> byStatus = new EnumMap<>(ExpiryStatus.class);
+        for (ExpiryStatus status : ExpiryStatus.values()) {
+            byStatus.put(status, new StatusSummaryResponse(status, 0, 0));
+        }
+        // Rows arrive ordered by category name; uncategorized products share the null key
+        Map<Long, CategorySummaryResponse> byCategory = new LinkedHashMap<>();
+        long totalCount = 0;
+        long totalQuantity = 0;
+        for (ProductSummaryRow row : productRepository.summarizeByUser(currentUser, today, today.plusDays(7))) {
+            StatusSummaryResponse status = byStatus.get(row.getStatus());
+            status.setCount(status.getCount() + row.getCount());
+            status.setQuantity(status.getQuantity() + row.getQuantity());
+
+            CategorySummaryResponse category = byCategory.computeIfAbsent(row.getCategoryId(),
+                    id -> new CategorySummaryResponse(id, row.getCategoryName(), 0, 0));
+            category.setCount(category.getCount() + row.getCount());
+            category.setQuantity(category.getQuantity() + row.getQuantity());
+
+            totalCount += row.getCount();
+            totalQuantity += row.getQuantity();
+        }
+
+        int upcomingSize = Math.min(Math.max(upcoming, 0), maxPageSize);
+        List<ProductView> expiringNext = upcomingSize == 0
+                ? List.of()
+                : productRepository.findUpcomingByUser(currentUser, today, Limit.of(upcomingSize));
+
+        return ProductSummaryResponse.builder()
+                .totalCount(totalCount)
+                .totalQuantity(totalQuantity)
+                .byStatus(List.copyOf(byStatus.values()))
+                .byCategory(List.copyOf(byCategory.values()))
+                .expiringNext(expiringNext.stream().map(product -> mapToResponse(product, today)).toList())
+                .build();
+    }
+
     /**
      * Internal helper to fetch products based on expiration logic.
      */
-    private List<Product> getProductsByStatus(User currentUser, ExpiryStatus status, LocalDate today, LocalDate nextWeek) {
+    private List<ProductView> getProductsByStatus(User currentUser, ExpiryStatus status, LocalDate today, LocalDate nextWeek) {
         return switch (status) {
-            case RED -> productRepository.findByUserAndExpirationDateBefore(currentUser, today);
-            case YELLOW -> productRepository.findByUserAndExpirationDateBetween(currentUser, today, nextWeek);
-            case GREEN -> productRepository.findByUserAndExpirationDateAfter(currentUser, nextWeek);
+            case RED -> productRepository.findViewsByUserAndExpirationDateBefore(currentUser, today);
+            case YELLOW -> productRepository.findViewsByUserAndExpirationDateBetween(currentUser, today, nextWeek);
+            case GREEN -> productRepository.findViewsByUserAndExpirationDateAfter(currentUser, nextWeek);
         };
     }
 
+    /**
+     * Parses a {@code property[,asc|desc]} sort parameter, defaulting to ascending expiration date.
+     *
+     * @throws IllegalArgumentException if the property is not sortable or the direction is unknown
+     */
+    private Sort parseSort(String sort) {
+        if (sort == null || sort.isBlank()) {
+            return Sort.by("expirationDate");
+        }
+        String[] parts = sort.split(",", 2);
+        String property = parts[0].strip();
+        if (!ProductSearchRepository.SORTABLE_PROPERTIES.contains(property)) {
+            throw new IllegalArgumentException("Cannot sort products by: " + property);
+        }
+        Sort.Direction direction = parts.length > 1 ? Sort.Direction.fromString(parts[1].strip()) : Sort.Direction.ASC;
+        return Sort.by(direction, property);
+    }
+
+    /**
+     * Checks one bulk import row against the request constraints and the known categories.
+     *
+     * @return the problems found, empty if the row can be imported
+     */
+    private List<String> validateImportRow(ProductRequest request, Map<Long, String> categories) {
+        if (request == null) {
+            return List.of("row is empty");
+        }
+        List<String> messages = new ArrayList<>();
+        for (ConstraintViolation<ProductRequest> violation : validator.validate(request)) {
+            messages.add(violation.getPropertyPath() + ": " + violation.getMessage());
+        }
+        if (request.getCategoryId() != null && !categories.containsKey(request.getCategoryId())) {
+            messages.add("categoryId: Category not found with id: " + request.getCategoryId());
+        }
+        messages.sort(null);
+        return messages;
+    }
+
+    /**
+     * The ids of the categories whose name matches the name filter the same way a product name does, taken from the
+     * cache so the search itself only compares product names.
+     */
+    private List<Long> categoriesMatchingName(ProductFilter filter) {
+        if (filter.getName() == null || filter.getName().isBlank()) {
+            return List.of();
+        }
+        String text = filter.getName().strip().toLowerCase(Locale.ROOT);
+        return categoryCache.getAll().entrySet().stream()
+                .filter(category -> {
+                    String name = category.getValue().toLowerCase(Locale.ROOT);
+                    return filter.getNameMatch() == NameMatch.PREFIX ? name.startsWith(text) : name.contains(text);
+                })
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    // Summed as a long, so a delta beyond the int range is reported instead of wrapping around
+    private static long adjustedQuantity(Product product, ProductOperation operation) {
+        return (long) product.getQuantity() + operation.getQuantityDelta();
+    }
+
+    /**
+     * Checks the shape of a batch operation; whether its product exists is checked against the loaded targets.
+     */
+    private List<String> validateOperation(ProductOperation operation, Map<Long, String> categories,
+                                           Set<Long> targeted) {
+        if (operation == null) {
+            return List.of("operation is empty");
+        }
+        List<String> messages = new ArrayList<>();
+        for (ConstraintViolation<ProductOperation> violation : validator.validate(operation)) {
+            messages.add(violation.getPropertyPath() + ": " + violation.getMessage());
+        }
+        if (operation.getOp() == null) {
+            messages.add("op: must not be null");
+        }
+        if (operation.getId() == null) {
+            messages.add("id: must not be null");
+        } else if (!targeted.add(operation.getId())) {
+            messages.add("id: product is already targeted by another operation");
+        }
+        if (operation.getOp() == ProductOperationType.UPDATE) {
+            if (operation.getProduct() == null) {
+                messages.add("product: must not be null");
+            } else {
+                validateImportRow(operation.getProduct(), categories)
+                        .forEach(message -> messages.add("product." + message));
+            }
+        }
+        if (operation.getOp() == ProductOperationType.ADJUST_QUANTITY
+                && (operation.getQuantityDelta() == null || operation.getQuantityDelta() == 0)) {
+            messages.add("quantityDelta: must not be null or zero");
+        }
+        messages.sort(null);
+        return messages;
+    }
+
+    private ProductResponse quantityChanged(Long userId, long version, Product product) {
+        productExpiryIndex.onSaved(userId, version, toView(product));
+        ProductResponse response = mapToResponse(product);
+        publishEvent(ProductEvent.Type.UPDATED, userId, version, product.getId(), response);
+        return response;
+    }
+
+    /**
+     * Whether a request names a lock version the product has already moved past.
+     */
+    private boolean isStale(Product product, ProductRequest request) {
+        return request.getLockVersion() != null && request.getLockVersion() != product.getLockVersion();
+    }
+
+    /**
+     * Copies the fields of a request onto a product and recomputes its expiry status.
+     */
+    private void applyRequest(Product product, ProductRequest request) {
+        // A new expiration date needs a new notification
+        if (!request.getExpirationDate().equals(product.getExpirationDate())) {
+            product.setNotified(false);
+        }
+        product.setName(request.getName());
+        product.setExpirationDate(request.getExpirationDate());
+        product.setQuantity(request.getQuantity());
+
+        if (request.getCategoryId() != null) {
+            product.setCategory(getCategoryReference(request.getCategoryId()));
+        } else {
+            product.setCategory(null);
+        }
+
+        applyExpiryStatus(product);
+    }
+
+    /**
+     * Resolves a category against the category cache and returns an unloaded reference to it.
+     *
+     * @throws ResourceNotFoundException if the category does not exist
+     */
+    private Category getCategoryReference(Long categoryId) {
+        if (!categoryCache.contains(categoryId)) {
+            throw new ResourceNotFoundException("Category", categoryId);
+        }
+        return categoryRepository.getReferenceById(categoryId);
+    }
+
     /**
      * Maps a Product entity to a ProductResponse DTO, calculating dynamic fields.
      */
-    private ProductResponse mapToResponse(Product product) {
+    ProductResponse mapToResponse(Product product) {
         long daysRemaining = ChronoUnit.DAYS.between(LocalDate.now(), product.getExpirationDate());
         ExpiryStatus expiryStatus = calculateExpiryStatus(daysRemaining);
 
@@ -178,16 +825,48 @@ public class ProductService implements IProductService {
                 .quantity(product.getQuantity())
                 .daysRemaining(daysRemaining)
                 .expiryStatus(expiryStatus)
+                .lockVersion(product.getLockVersion())
                 .build();
 
         if (product.getCategory() != null) {
-            response.setCategoryName(product.getCategory().getName());
-            response.setCategoryId(product.getCategory().getId());
+            // Reading the id leaves the lazy category uninitialized, so mapping works outside a session too
+            Long categoryId = product.getCategory().getId();
+            response.setCategoryName(categoryCache.resolveName(categoryId));
+            response.setCategoryId(categoryId);
         }
 
         return response;
     }
 
+    /**
+     * Maps a listing projection to a ProductResponse DTO; the category name was joined by the query.
+     * {@code today} is read once per request rather than once per row.
+     */
+    ProductResponse mapToResponse(ProductView product, LocalDate today) {
+        long daysRemaining = ChronoUnit.DAYS.between(today, product.getExpirationDate());
+
+        return ProductResponse.builder()
+                .id(product.getId())
+                .name(product.getName())
+                .expirationDate(product.getExpirationDate())
+                .quantity(product.getQuantity())
+                .categoryId(product.getCategoryId())
+                .categoryName(product.getCategoryName())
+                .daysRemaining(daysRemaining)
+                .expiryStatus(calculateExpiryStatus(daysRemaining))
+                .lockVersion(product.getLockVersion())
+                .build();
+    }
+
+    /**
+     * Projects a saved product into the listing shape kept by the {@link ProductExpiryIndex}.
+     */
+    private ProductView toView(Product product) {
+        Long categoryId = product.getCategory() != null ? product.getCategory().getId() : null;
+        return new ProductView(product.getId(), product.getName(), product.getExpirationDate(), product.getQuantity(),
+                categoryId, categoryId != null ? categoryCache.getName(categoryId) : null, product.getLockVersion());
+    }
+
     /**
      * Logic to determine the expiration status based on days remaining.
      * RED: expired (< 0 days)
@@ -197,7 +876,7 @@ public class ProductService implements IProductService {
      * @param daysRemaining number of days until expiration
      * @return the calculated expiry status
      */
-    private ExpiryStatus calculateExpiryStatus(long daysRemaining) {
+    ExpiryStatus calculateExpiryStatus(long daysRemaining) {
         if (daysRemaining < 0) {
             return ExpiryStatus.RED;
         } else if (daysRemaining <= 7) {
@@ -207,6 +886,108 @@ public class ProductService implements IProductService {
         }
     }
 
+    /**
+     * Stores the current expiry status and the date of its next transition on the product,
+     * so the nightly horizon sweep only visits it once that date is reached.
+     */
+    private void applyExpiryStatus(Product product) {
+        long daysRemaining = ChronoUnit.DAYS.between(LocalDate.now(), product.getExpirationDate());
+        ExpiryStatus expiryStatus = calculateExpiryStatus(daysRemaining);
+
+        product.setExpiryStatus(expiryStatus);
+        product.setNextTransitionDate(switch (expiryStatus) {
+            case GREEN -> product.getExpirationDate().minusDays(7);
+            case YELLOW -> product.getExpirationDate().plusDays(1);
+            case RED -> null;
+        });
+    }
+
+    /**
+     * Increments the version of a user's product collection; must run inside the writing transaction.
+     *
+     * @return the version to stamp on the written rows
+     */
+    private long bumpVersion(Long userId) {
+        return collectionVersionService.bump(CollectionVersionService.products(userId));
+    }
+
+    /**
+     * Publishes a write to the user's event streams once it commits, tagged with the version it produced.
+     */
+    private void publishEvent(ProductEvent.Type type, Long userId, long version, Long productId,
+                              ProductResponse product) {
+        VersionToken token = new VersionToken(userId, LocalDate.now().toEpochDay(), version, categoryCache.getVersion());
+        productEventBus.publish(userId, ProductEvent.builder()
+                .type(type)
+                .version(token.format())
+                .productId(productId)
+                .product(product)
+                .build());
+    }
+
+    private VersionToken currentVersion(Long userId) {
+        return new VersionToken(userId, LocalDate.now().toEpochDay(),
+                collectionVersionService.current(CollectionVersionService.products(userId)),
+                categoryCache.getVersion());
+    }
+
+    /**
+     * Encodes the keyset position of a product as an opaque, URL-safe cursor.
+     */
+    private String encodeCursor(ProductView product) {
+        String position = product.getExpirationDate().toEpochDay() + ":" + product.getId();
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a cursor produced by {@link #encodeCursor(ProductView)} into its keyset position.
+     */
+    private Product decodeCursor(String cursor) {
+        try {
+            String position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = position.indexOf(':');
+            return Product.builder()
+                    .expirationDate(LocalDate.ofEpochDay(Long.parseLong(position.substring(0, separator))))
+                    .id(Long.parseLong(position.substring(separator + 1)))
+                    .build();
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    /**
+     * Position of a client in the current user's product collection, formatted as
+     * {@code userId.epochDay.productVersion.categoryVersion}.
+     */
+    private record VersionToken(long userId, long epochDay, long products, long categories) {
+
+        static VersionToken parse(String token) {
+            String[] parts = token.split("\\.");
+            try {
+                if (parts.length != 4) {
+                    throw new NumberFormatException();
+                }
+                return new VersionToken(Long.parseLong(parts[0]), Long.parseLong(parts[1]),
+                        Long.parseLong(parts[2]), Long.parseLong(parts[3]));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid version");
+            }
+        }
+
+        String format() {
+            return userId + "." + epochDay + "." + products + "." + categories;
+        }
+
+        /**
+         * Whether {@code current} only differs by product writes, so a delta from this position is complete.
+         */
+        boolean isContinuedBy(VersionToken current) {
+            return userId == current.userId && epochDay == current.epochDay
+                    && categories == current.categories && products <= current.products;
+        }
+    }
+
     /**
      * Internal helper to find a product or throw an exception.
      */
@@ -219,7 +1000,7 @@ public class ProductService implements IProductService {
      * Internal helper to verify if the authenticated user owns the resource.
      */
     private void verifyOwnership(Product product) {
-        Long currentUserId = userService.getCurrentUserEntity().getId();
+        Long currentUserId = userService.getCurrentUserId();
         if (!product.getUser().getId().equals(currentUserId)) {
             throw new UnauthorizedAccessException("Product", product.getId(), currentUserId);
         }
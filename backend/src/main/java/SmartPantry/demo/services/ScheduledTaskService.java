@@ -1,16 +1,14 @@
 package SmartPantry.demo.services;
 
-import SmartPantry.demo.entities.Product;
-import SmartPantry.demo.repositories.ProductRepository;
-import SmartPantry.demo.entities.enums.ExpiryStatus;
+import SmartPantry.demo.dtos.notifications.ProductEvent;
+import SmartPantry.demo.repositories.ProductTombstoneRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
-import java.time.temporal.ChronoUnit;
-import java.util.List;
 
 /**
  * Service responsible for executing background tasks, such as checking for expiring products.
@@ -20,7 +18,13 @@ import java.util.List;
 @Slf4j
 public class ScheduledTaskService {
 
-    private final ProductRepository productRepository;
+    private final ExpiryReclassificationService expiryReclassificationService;
+    private final ExpiryNotificationService expiryNotificationService;
+    private final ProductTombstoneRepository productTombstoneRepository;
+    private final ProductEventBus productEventBus;
+
+    @Value("${expiry.scheduler.mode:HORIZON}")
+    private ExpiryReclassificationService.Mode mode;
 
     /**
      * Background task that runs periodically to check for products nearing their expiration date.
@@ -28,50 +32,82 @@ public class ScheduledTaskService {
      */
     @Scheduled(cron = "0 0 0 * * *")
     public void checkProductExpirations() {
-        log.info("Starting background check for expiring products at {}", LocalDate.now());
-
-        try {
-            LocalDate today = LocalDate.now();
+        runSweep(mode);
+        pruneTombstones();
+        // Every status and days-remaining value may have moved with the date, so open dashboards reload
+        productEventBus.broadcast(ProductEvent.builder().type(ProductEvent.Type.RESYNC).build());
+    }
 
-            // 1. Fetch all products
-            List<Product> allProducts = productRepository.findAll();
+    /**
+     * Full sweep that catches products the horizon sweep cannot see, such as rows stored
+     * before the next transition date existed. Skipped when every nightly run is already full.
+     */
+    @Scheduled(cron = "${expiry.scheduler.reconcile-cron:0 30 0 * * SUN}")
+    public void reconcileProductExpirations() {
+        if (mode != ExpiryReclassificationService.Mode.FULL) {
+            runSweep(ExpiryReclassificationService.Mode.FULL);
+        }
+    }
 
-            int updatedCount = 0;
-            for (Product product : allProducts) {
-                ExpiryStatus newStatus = calculateExpiryStatus(product.getExpirationDate(), today);
+    /**
+     * Sends the daily expiry digests. Runs after the midnight sweep so statuses are current.
+     */
+    @Scheduled(cron = "${notifications.cron:0 15 0 * * *}")
+    public void sendExpiryNotifications() {
+        LocalDate today = LocalDate.now();
+        log.info("Starting expiry notifications for {}", today);
 
-                if (!newStatus.equals(product.getExpiryStatus())) {
-                    product.setExpiryStatus(newStatus);
-                    productRepository.save(product);
-                    updatedCount++;
-                }
+        try {
+            ExpiryNotificationService.Report report = expiryNotificationService.sendDueNotifications(today);
+            if (report.getDigestsFailed() > 0) {
+                log.error("Expiry notifications left {} digests unsent; their products stay pending",
+                        report.getDigestsFailed());
             }
-
-            log.info("Expiry status check completed. Updated {} products at {}", updatedCount, LocalDate.now());
+            log.info("Expiry notifications completed. Sent {} digests covering {} products in {} ms across {} batches",
+                    report.getDigestsSent(), report.getProductsNotified(), report.getElapsedMillis(),
+                    report.getBatches());
         } catch (Exception e) {
-            log.error("Error during product expiry check", e);
+            log.error("Error during expiry notifications", e);
         }
     }
 
     /**
-     * Calculates expiry status based on product's expiration date.
-     * RED: expired (< 0 days remaining)
-     * YELLOW: expires within 7 days (including today)
-     * GREEN: expires after 7 days
-     *
-     * @param expirationDate expiration date of product
-     * @param today current date
-     * @return calculated expiry status
+     * Drops deletion records from previous days. Delta tokens from an earlier day always get the
+     * full collection, so nothing reads them any more.
      */
-    private ExpiryStatus calculateExpiryStatus(LocalDate expirationDate, LocalDate today) {
-        long daysRemaining = ChronoUnit.DAYS.between(today, expirationDate);
+    private void pruneTombstones() {
+        try {
+            int pruned = productTombstoneRepository.deleteDeletedBefore(LocalDate.now());
+            log.info("Pruned {} product tombstones", pruned);
+        } catch (Exception e) {
+            log.error("Error while pruning product tombstones", e);
+        }
+    }
+
+    private void runSweep(ExpiryReclassificationService.Mode sweepMode) {
+        log.info("Starting {} background check for expiring products at {}", sweepMode, LocalDate.now());
+
+        try {
+            LocalDate today = LocalDate.now();
+            ExpiryReclassificationService.Report report =
+                    expiryReclassificationService.reclassify(today, sweepMode);
+
+            int updatedCount = 0;
+            for (ExpiryReclassificationService.Transition transition : report.getTransitions()) {
+                log.info("Expiry transition {} -> {}: {} products in {} ms",
+                        transition.getFrom(), transition.getTo(),
+                        transition.getRows(), transition.getElapsedMillis());
+                updatedCount += transition.getRows();
+            }
 
-        if (daysRemaining < 0) {
-            return ExpiryStatus.RED;
-        } else if (daysRemaining <= 7) {
-            return ExpiryStatus.YELLOW;
-        } else {
-            return ExpiryStatus.GREEN;
+            if (report.getFailedPartitions() > 0) {
+                log.error("Expiry status check left {} of {} partitions unprocessed",
+                        report.getFailedPartitions(), report.getPartitions());
+            }
+            log.info("Expiry status check completed. Updated {} products in {} ms across {} partitions at {}",
+                    updatedCount, report.getElapsedMillis(), report.getPartitions(), LocalDate.now());
+        } catch (Exception e) {
+            log.error("Error during product expiry check", e);
         }
     }
 }
@@ -0,0 +1,77 @@
+package SmartPantry.demo.services;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Token buckets keyed by an arbitrary string, such as a client address or a username.
+ * Each bucket is a single {@link AtomicLong} holding the time at which it will be full again
+ * (the generic cell rate algorithm), so taking a token is one compare-and-set and never blocks;
+ * the map itself locks per bin, so callers for different keys do not contend.
+ * Buckets that have been full for longer than the idle timeout are dropped by {@link #evictIdle()}.
+ */
+public class TokenBucketRateLimiter {
+
+    private final long nanosPerToken;
+    // How far ahead of now the bucket may be drawn before it is empty
+    private final long burstNanos;
+    private final long idleNanos;
+    private final LongSupplier nanoClock;
+    private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+    /**
+     * @param capacity the most tokens a bucket holds, i.e. the burst allowed after a quiet period
+     * @param refillPerMinute how many tokens are added back per minute
+     * @param idleMillis how long a full bucket is kept before it is evicted
+     * @param nanoClock the time source, {@code System::nanoTime} outside of tests
+     */
+    public TokenBucketRateLimiter(int capacity, int refillPerMinute, long idleMillis, LongSupplier nanoClock) {
+        if (capacity < 1 || refillPerMinute < 1) {
+            throw new IllegalArgumentException("Rate limit capacity and refill rate must be positive");
+        }
+        this.nanosPerToken = TimeUnit.MINUTES.toNanos(1) / refillPerMinute;
+        this.burstNanos = nanosPerToken * capacity;
+        this.idleNanos = TimeUnit.MILLISECONDS.toNanos(idleMillis);
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Takes a token from the key's bucket.
+     *
+     * @return 0 if a token was taken, otherwise how many nanoseconds until one is available
+     */
+    public long tryAcquire(String key) {
+        long now = nanoClock.getAsLong();
+        AtomicLong fullAt = buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+        while (true) {
+            long current = fullAt.get();
+            long drawn = Math.max(current, now) + nanosPerToken;
+            if (drawn - now > burstNanos) {
+                return drawn - now - burstNanos;
+            }
+            if (fullAt.compareAndSet(current, drawn)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Drops every bucket that has been full for at least the idle timeout.
+     * A caller racing with the removal may take its token from the dropped bucket; since the bucket
+     * was full, that lets through at most one extra request.
+     *
+     * @return the number of buckets dropped
+     */
+    public int evictIdle() {
+        long now = nanoClock.getAsLong();
+        int before = buckets.size();
+        buckets.values().removeIf(fullAt -> now - fullAt.get() >= idleNanos);
+        return before - buckets.size();
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+}
@@ -53,4 +53,32 @@ public class UserService implements IUserService {
         return userRepository.findById(userId)
                 .orElseThrow(() -> new IllegalArgumentException("User not found"));
     }
+
+    /**
+     * Retrieves the ID of the currently authenticated user from the verified token claims.
+     *
+     * @return the ID of the authenticated user
+     * @throws IllegalArgumentException if no user is authenticated
+     */
+    @Override
+    public Long getCurrentUserId() {
+        Long userId = UserContext.getCurrentUserId();
+        if (userId == null) {
+            throw new IllegalArgumentException("User not found");
+        }
+        return userId;
+    }
+
+    /**
+     * Retrieves a lazy reference to the currently authenticated user without querying the database.
+     * Suitable for setting associations and as a query parameter; only its ID is available
+     * without triggering a load.
+     *
+     * @return an uninitialized {@link User} proxy for the authenticated user
+     * @throws IllegalArgumentException if no user is authenticated
+     */
+    @Override
+    public User getCurrentUserReference() {
+        return userRepository.getReferenceById(getCurrentUserId());
+    }
 }
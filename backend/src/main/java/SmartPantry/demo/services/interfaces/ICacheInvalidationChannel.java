@@ -0,0 +1,11 @@
+package SmartPantry.demo.services.interfaces;
+
+/**
+ * Broadcasts cache invalidations so every application node drops its copy of a cache.
+ * The default implementation only reaches the local process; a multi-node deployment registers a
+ * {@code @Primary} implementation backed by a shared transport (for example PostgreSQL LISTEN/NOTIFY).
+ */
+public interface ICacheInvalidationChannel {
+    void publish(String cacheName);
+    void subscribe(String cacheName, Runnable listener);
+}
@@ -7,6 +7,7 @@ import java.util.List;
 
 public interface ICategoryService {
     List<CategoryResponse> getAll();
+    long getVersion();
     CategoryResponse create(CategoryRequest request);
     CategoryResponse update(Long id, CategoryRequest request);
     void delete(Long id);
@@ -0,0 +1,12 @@
+package SmartPantry.demo.services.interfaces;
+
+import SmartPantry.demo.dtos.notifications.NotificationDigest;
+
+/**
+ * Delivers expiry digests to users. A send that returns normally counts as delivered; any exception
+ * makes the dispatcher retry. Implementations must treat a repeated idempotency key as already
+ * delivered, since a digest can be sent again if marking its products fails afterwards.
+ */
+public interface INotificationSender {
+    void send(NotificationDigest digest);
+}
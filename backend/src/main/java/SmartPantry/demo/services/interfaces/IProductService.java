@@ -1,16 +1,35 @@
 package SmartPantry.demo.services.interfaces;
 
+import SmartPantry.demo.dtos.requests.ImportMode;
+import SmartPantry.demo.dtos.requests.ProductFilter;
+import SmartPantry.demo.dtos.requests.ProductOperation;
 import SmartPantry.demo.dtos.requests.ProductRequest;
+import SmartPantry.demo.dtos.responses.BulkImportResponse;
+import SmartPantry.demo.dtos.responses.ProductBatchResponse;
+import SmartPantry.demo.dtos.responses.ProductChangesResponse;
+import SmartPantry.demo.dtos.responses.ProductPageResponse;
 import SmartPantry.demo.dtos.responses.ProductResponse;
+import SmartPantry.demo.dtos.responses.ProductSummaryResponse;
 import SmartPantry.demo.entities.enums.ExpiryStatus;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface IProductService {
-    List<ProductResponse> getAllForCurrentUser();
+    String getCollectionVersion();
+    ProductChangesResponse getChangesForCurrentUser(String since);
+    List<ProductResponse> getAllForCurrentUser(ProductFilter filter);
+    ProductPageResponse getPageForCurrentUser(String cursor, int limit);
+    void streamForCurrentUser(Consumer<ProductResponse> consumer);
     ProductResponse getById(Long id);
     ProductResponse create(ProductRequest request);
+    BulkImportResponse importProducts(List<ProductRequest> requests, ImportMode mode);
+    ProductBatchResponse applyBatch(List<ProductOperation> operations, ImportMode mode);
     ProductResponse update(Long id, ProductRequest request);
+    Optional<ProductResponse> consume(Long id, int amount);
+    ProductResponse restock(Long id, int amount);
     void delete(Long id);
     List<ProductResponse> getByStatus(ExpiryStatus status);
+    ProductSummaryResponse getSummaryForCurrentUser(int upcoming);
 }
@@ -6,4 +6,6 @@ import SmartPantry.demo.entities.User;
 public interface IUserService {
     UserResponse getCurrentUserResponse();
     User getCurrentUserEntity();
+    Long getCurrentUserId();
+    User getCurrentUserReference();
 }
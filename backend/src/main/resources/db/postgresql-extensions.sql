@@ -0,0 +1,7 @@
+-- Extensions the PostgreSQL schema relies on. Not run by the application, since creating an extension needs the
+-- CREATE privilege on the database: apply it once per database as its owner or a superuser, e.g.
+--   psql -U postgres -d smart_pantry -f postgresql-extensions.sql
+-- docker compose runs it when it initializes the database volume.
+
+-- Trigram operators for idx_products_name_trgm (see postgresql-indexes.sql)
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
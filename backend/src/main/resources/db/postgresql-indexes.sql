@@ -0,0 +1,22 @@
+-- Indexes that cannot be expressed with JPA @Index and are only created on PostgreSQL.
+-- Executed after Hibernate has updated the schema (see application-prod.properties).
+
+-- Pending expiry notifications: only rows that still need a notification are indexed
+CREATE INDEX IF NOT EXISTS idx_products_pending_notification
+    ON products (expiration_date)
+    WHERE notified = false;
+
+-- Product name search: trigram index on lower(name) serves both substring and prefix LIKE filters.
+-- Category names are matched in the application and ORed in as category ids, which keeps the name
+-- predicate on this table. Needs the pg_trgm extension from postgresql-extensions.sql; until it is installed
+-- the index is skipped and the search is bounded by the user index, as it is on H2.
+-- The block is single-quoted so the script splitter leaves its semicolons alone
+DO '
+BEGIN
+    IF EXISTS (SELECT 1 FROM pg_extension WHERE extname = ''pg_trgm'') THEN
+        CREATE INDEX IF NOT EXISTS idx_products_name_trgm
+            ON products USING gin (lower(name) gin_trgm_ops);
+    ELSE
+        RAISE WARNING ''pg_trgm is not installed, skipping idx_products_name_trgm; see db/postgresql-extensions.sql'';
+    END IF;
+END';
@@ -0,0 +1,4 @@
+-- Product ids moved from an identity column to products_seq (pooled, allocation size 50).
+-- Move the sequence past ids already handed out by the identity column; a no-op once it is ahead.
+SELECT setval('products_seq', (SELECT MAX(id) FROM products))
+WHERE (SELECT MAX(id) FROM products) > (SELECT last_value FROM products_seq);
@@ -0,0 +1,79 @@
+package SmartPantry.demo.configs;
+
+import io.jsonwebtoken.Claims;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JwtUtilTest {
+
+    private JwtUtil jwtUtil(long expirationMillis) {
+        JwtUtil jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secret", "clave-secreta-muy-larga-para-demo");
+        ReflectionTestUtils.setField(jwtUtil, "expiration", expirationMillis);
+        ReflectionTestUtils.setField(jwtUtil, "cacheMaxSize", 2);
+        jwtUtil.init();
+        return jwtUtil;
+    }
+
+    @Test
+    void parsesClaimsOnceAndServesRepeatsFromCache() {
+        JwtUtil jwtUtil = jwtUtil(60_000);
+        String token = jwtUtil.generateToken(7L, "alice");
+
+        Claims first = jwtUtil.parseClaims(token).orElseThrow();
+        Claims second = jwtUtil.parseClaims(token).orElseThrow();
+
+        assertSame(first, second);
+        assertEquals(7L, first.get("id", Long.class));
+        assertEquals("alice", first.get("name", String.class));
+    }
+
+    @Test
+    void rejectsTamperedAndMalformedTokens() {
+        JwtUtil jwtUtil = jwtUtil(60_000);
+        String token = jwtUtil.generateToken(7L, "alice");
+        jwtUtil.parseClaims(token);
+
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+
+        assertTrue(jwtUtil.parseClaims(tampered).isEmpty());
+        assertTrue(jwtUtil.parseClaims("not-a-token").isEmpty());
+        assertFalse(jwtUtil.validateToken(""));
+    }
+
+    @Test
+    void stopsServingCachedClaimsOnceTheTokenExpires() throws InterruptedException {
+        JwtUtil jwtUtil = jwtUtil(1_000);
+        String token = jwtUtil.generateToken(7L, "alice");
+        assertTrue(jwtUtil.parseClaims(token).isPresent());
+
+        Thread.sleep(2_000);
+
+        Optional<Claims> expired = jwtUtil.parseClaims(token);
+        assertTrue(expired.isEmpty());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedTokens() {
+        JwtUtil jwtUtil = jwtUtil(60_000);
+        String first = jwtUtil.generateToken(1L, "first");
+        String second = jwtUtil.generateToken(2L, "second");
+        String third = jwtUtil.generateToken(3L, "third");
+
+        Claims cached = jwtUtil.parseClaims(first).orElseThrow();
+        jwtUtil.parseClaims(second);
+        jwtUtil.parseClaims(first);
+        jwtUtil.parseClaims(third);
+
+        assertSame(cached, jwtUtil.parseClaims(first).orElseThrow());
+        Claims reparsed = jwtUtil.parseClaims(second).orElseThrow();
+        assertSame(reparsed, jwtUtil.parseClaims(second).orElseThrow());
+    }
+}
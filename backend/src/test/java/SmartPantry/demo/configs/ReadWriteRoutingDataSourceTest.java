@@ -0,0 +1,92 @@
+package SmartPantry.demo.configs;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Routes between two in-memory H2 databases that each report their own name, standing in for a primary and a replica.
+ */
+class ReadWriteRoutingDataSourceTest {
+
+    private static final long STICKY_MILLIS = 300;
+
+    private JdbcTemplate jdbcTemplate;
+    private DataSourceTransactionManager transactionManager;
+
+    @BeforeEach
+    void setUp() {
+        DataSource routing = new LazyConnectionDataSourceProxy(new ReadWriteRoutingDataSource(
+                node("primary"), node("replica"), STICKY_MILLIS));
+        jdbcTemplate = new JdbcTemplate(routing);
+        transactionManager = new DataSourceTransactionManager(routing);
+    }
+
+    @AfterEach
+    void clearUser() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void sendsReadOnlyTransactionsToTheReplicaAndEverythingElseToThePrimary() {
+        assertEquals("replica", readIn(true));
+        assertEquals("primary", readIn(false));
+        assertEquals("primary", currentNode());
+
+        // A read-only call joining a write's transaction shares its connection
+        TransactionTemplate write = new TransactionTemplate(transactionManager);
+        assertEquals("primary", write.execute(status -> readIn(true)));
+    }
+
+    @Test
+    void keepsAUserReadingFromThePrimaryForAWhileAfterTheirWrite() throws InterruptedException {
+        signIn(1L);
+        assertEquals("replica", readIn(true));
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                jdbcTemplate.update("UPDATE node SET name = name"));
+
+        assertEquals("primary", readIn(true));
+        signIn(2L);
+        assertEquals("replica", readIn(true));
+
+        Thread.sleep(STICKY_MILLIS + 100);
+        signIn(1L);
+        assertEquals("replica", readIn(true));
+    }
+
+    private String readIn(boolean readOnly) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(readOnly);
+        return transaction.execute(status -> currentNode());
+    }
+
+    private String currentNode() {
+        return jdbcTemplate.queryForObject("SELECT name FROM node", String.class);
+    }
+
+    private static void signIn(Long userId) {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                new AuthenticatedUser(userId, "user" + userId), null, List.of()));
+    }
+
+    private static DataSource node(String name) {
+        DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:routing-" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate setup = new JdbcTemplate(dataSource);
+        setup.execute("CREATE TABLE IF NOT EXISTS node (name VARCHAR(16))");
+        setup.update("DELETE FROM node");
+        setup.update("INSERT INTO node (name) VALUES (?)", name);
+        return dataSource;
+    }
+}
@@ -0,0 +1,127 @@
+package SmartPantry.demo.controllers;
+
+import SmartPantry.demo.entities.User;
+import SmartPantry.demo.repositories.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import tools.jackson.databind.ObjectMapper;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "auth.bcrypt.strength=5",
+        "auth.rate-limit.username.capacity=3",
+        "auth.rate-limit.username.refill-per-minute=1",
+        "auth.rate-limit.address.capacity=100"
+})
+@AutoConfigureMockMvc
+class AuthControllerTest {
+
+    private static final String PASSWORD = "correct horse battery staple";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM products");
+        jdbcTemplate.update("DELETE FROM collection_versions WHERE name LIKE 'products:%'");
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void createsTheProductCounterWithTheUserAndOnFirstWriteForOlderUsers() throws Exception {
+        mockMvc.perform(post("/api/v1/auth/register")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\":\"newcomer\",\"email\":\"newcomer@example.com\","
+                                + "\"password\":\"" + PASSWORD + "\"}"))
+                .andExpect(status().isCreated());
+        String counter = "products:" + userRepository.findByUsername("newcomer").orElseThrow().getId();
+        assertEquals(0L, productVersion(counter));
+
+        // A user registered before counters were created with them gets one in their first write's transaction
+        jdbcTemplate.update("DELETE FROM collection_versions WHERE name = ?", counter);
+        String token = objectMapper.readTree(mockMvc.perform(login("newcomer", PASSWORD))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString()).get("token").asString();
+        mockMvc.perform(post("/api/v1/products")
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Rice\",\"expirationDate\":\"" + LocalDate.now().plusDays(30)
+                                + "\",\"quantity\":1}"))
+                .andExpect(status().isCreated());
+        assertEquals(1L, productVersion(counter));
+    }
+
+    @Test
+    void throttlesRepeatedLoginsForAUsername() throws Exception {
+        saveUser("guessed", new BCryptPasswordEncoder(5).encode(PASSWORD));
+
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(login("guessed", "wrong-" + i)).andExpect(status().isBadRequest());
+        }
+        // Even the right password is turned away until the bucket refills
+        mockMvc.perform(login("GUESSED", PASSWORD))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "60"))
+                .andExpect(jsonPath("$.status").value(429));
+
+        // Other usernames from the same address are unaffected
+        mockMvc.perform(login("someone-else", PASSWORD)).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void rehashesPasswordsStoredWithAnotherCost() throws Exception {
+        User user = saveUser("migrated", new BCryptPasswordEncoder(4).encode(PASSWORD));
+
+        mockMvc.perform(login("migrated", PASSWORD)).andExpect(status().isOk());
+
+        String rehashed = userRepository.findById(user.getId()).orElseThrow().getPassword();
+        assertTrue(rehashed.startsWith("$2a$05$"), rehashed);
+        mockMvc.perform(login("migrated", PASSWORD)).andExpect(status().isOk());
+        assertEquals(rehashed, userRepository.findById(user.getId()).orElseThrow().getPassword());
+    }
+
+    private Long productVersion(String counter) {
+        return jdbcTemplate.queryForObject("SELECT version FROM collection_versions WHERE name = ?", Long.class, counter);
+    }
+
+    private User saveUser(String username, String passwordHash) {
+        return userRepository.save(User.builder()
+                .username(username)
+                .email(username + "@example.com")
+                .password(passwordHash)
+                .build());
+    }
+
+    private MockHttpServletRequestBuilder login(String username, String password) {
+        return post("/api/v1/auth/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"username\":\"" + username + "\",\"password\":\"" + password + "\"}");
+    }
+}
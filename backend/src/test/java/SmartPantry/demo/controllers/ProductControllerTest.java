@@ -0,0 +1,761 @@
+package SmartPantry.demo.controllers;
+
+import SmartPantry.demo.configs.JwtUtil;
+import SmartPantry.demo.entities.User;
+import SmartPantry.demo.repositories.ProductRepository;
+import SmartPantry.demo.repositories.UserRepository;
+import SmartPantry.demo.services.CategoryCache;
+import SmartPantry.demo.services.CollectionVersionService;
+import SmartPantry.demo.support.CategoryFixtures;
+import SmartPantry.demo.support.ProductIds;
+import SmartPantry.demo.support.SqlCaptureInspector;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=SmartPantry.demo.support.SqlCaptureInspector"
+})
+@AutoConfigureMockMvc
+class ProductControllerTest {
+
+    private static final int PRODUCT_COUNT = 25;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private CategoryCache categoryCache;
+
+    @Autowired
+    private CollectionVersionService collectionVersionService;
+
+    private String token;
+    private long userId;
+
+    @BeforeEach
+    void seedProducts() {
+        User user = userRepository.save(User.builder()
+                .username("pager")
+                .email("pager@example.com")
+                .password("secret")
+                .build());
+        token = "Bearer " + jwtUtil.generateToken(user.getId(), user.getUsername());
+        userId = user.getId();
+        // Writes find the version counter in place, as they do for every user past their first write
+        jdbcTemplate.update("INSERT INTO collection_versions (name, version) VALUES (?, 0)", "products:" + userId);
+
+        // Several products share each expiration date so the id tie-breaker matters
+        LocalDate today = LocalDate.now();
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < PRODUCT_COUNT; i++) {
+            rows.add(new Object[]{"Product " + i, Date.valueOf(today.plusDays(i % 5)), Date.valueOf(today), user.getId()});
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO products (id, name, expiration_date, quantity, entry_date, notified, user_id, expiry_status) "
+                        + "VALUES (?, ?, ?, 1, ?, FALSE, ?, 'GREEN')",
+                ProductIds.prepend(jdbcTemplate, rows));
+    }
+
+    @AfterEach
+    void cleanUp() {
+        productRepository.deleteAllInBatch();
+        userRepository.deleteAll();
+        jdbcTemplate.update("DELETE FROM categories WHERE name LIKE 'summary-%'");
+        jdbcTemplate.update("DELETE FROM product_tombstones");
+        jdbcTemplate.update("DELETE FROM collection_versions WHERE name LIKE 'products:%'");
+    }
+
+    @Test
+    void pagesThroughAllProductsInKeysetOrder() throws Exception {
+        List<JsonNode> items = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            var request = get("/api/v1/products").param("limit", "10").header(HttpHeaders.AUTHORIZATION, token);
+            if (cursor != null) {
+                request.param("cursor", cursor);
+            }
+            JsonNode page = readJson(mockMvc.perform(request).andExpect(status().isOk()).andReturn());
+            page.get("items").forEach(items::add);
+            cursor = page.get("nextCursor").isNull() ? null : page.get("nextCursor").asString();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(3, pages);
+        assertEquals(PRODUCT_COUNT, items.size());
+        for (int i = 1; i < items.size(); i++) {
+            JsonNode previous = items.get(i - 1);
+            JsonNode current = items.get(i);
+            int byDate = previous.get("expirationDate").asString().compareTo(current.get("expirationDate").asString());
+            assertTrue(byDate < 0 || (byDate == 0 && previous.get("id").asLong() < current.get("id").asLong()));
+        }
+    }
+
+    @Test
+    void rejectsMalformedCursor() throws Exception {
+        mockMvc.perform(get("/api/v1/products")
+                        .param("limit", "10")
+                        .param("cursor", "not-a-cursor")
+                        .header(HttpHeaders.AUTHORIZATION, token))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void keepsReturningTheFullListAsJson() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/v1/products")
+                        .accept(MediaType.ALL)
+                        .header(HttpHeaders.AUTHORIZATION, token))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andReturn();
+
+        assertEquals(PRODUCT_COUNT, readJson(result).size());
+    }
+
+    @Test
+    void streamsProductsAsNdjson() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/v1/products")
+                        .accept(MediaType.APPLICATION_NDJSON)
+                        .header(HttpHeaders.AUTHORIZATION, token))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andReturn();
+
+        String[] lines = result.getResponse().getContentAsString().strip().split("\n");
+        assertEquals(PRODUCT_COUNT, lines.length);
+        for (String line : lines) {
+            assertTrue(objectMapper.readTree(line).has("expiryStatus"));
+        }
+    }
+
+    @Test
+    void summarizesThePantryByStatusAndCategory() throws Exception {
+        jdbcTemplate.update("INSERT INTO categories (name) VALUES ('summary-dairy')");
+        long dairyId = jdbcTemplate.queryForObject("SELECT id FROM categories WHERE name = 'summary-dairy'", Long.class);
+        CategoryFixtures.changed(collectionVersionService, categoryCache);
+        long userId = jdbcTemplate.queryForObject("SELECT id FROM users WHERE username = 'pager'", Long.class);
+        LocalDate today = LocalDate.now();
+        // The stored status is stale on purpose: buckets come from the expiration date
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO products (id, name, expiration_date, quantity, entry_date, notified, user_id, category_id, "
+                        + "expiry_status) VALUES (?, ?, ?, ?, ?, FALSE, ?, ?, 'GREEN')",
+                ProductIds.prepend(jdbcTemplate, List.of(
+                        new Object[]{"Expired yogurt", Date.valueOf(today.minusDays(2)), 3, Date.valueOf(today), userId, dairyId},
+                        new Object[]{"Fresh cheese", Date.valueOf(today.plusDays(20)), 4, Date.valueOf(today), userId, dairyId})));
+
+        JsonNode summary = readJson(mockMvc.perform(get("/api/v1/products/summary")
+                        .param("upcoming", "3")
+                        .header(HttpHeaders.AUTHORIZATION, token))
+                .andExpect(status().isOk())
+                .andReturn());
+
+        assertEquals(PRODUCT_COUNT + 2, summary.get("totalCount").asLong());
+        assertEquals(PRODUCT_COUNT + 7, summary.get("totalQuantity").asLong());
+
+        Map<String, JsonNode> byStatus = new HashMap<>();
+        summary.get("byStatus").forEach(node -> byStatus.put(node.get("status").asString(), node));
+        assertEquals(1, byStatus.get("RED").get("count").asLong());
+        assertEquals(3, byStatus.get("RED").get("quantity").asLong());
+        assertEquals(PRODUCT_COUNT, byStatus.get("YELLOW").get("count").asLong());
+        assertEquals(1, byStatus.get("GREEN").get("count").asLong());
+        assertEquals(4, byStatus.get("GREEN").get("quantity").asLong());
+
+        Map<Long, JsonNode> byCategory = new HashMap<>();
+        summary.get("byCategory").forEach(node ->
+                byCategory.put(node.get("categoryId").isNull() ? null : node.get("categoryId").asLong(), node));
+        assertEquals(2, byCategory.size());
+        assertEquals(2, byCategory.get(dairyId).get("count").asLong());
+        assertEquals(7, byCategory.get(dairyId).get("quantity").asLong());
+        assertEquals(PRODUCT_COUNT, byCategory.get(null).get("count").asLong());
+
+        JsonNode expiringNext = summary.get("expiringNext");
+        assertEquals(3, expiringNext.size());
+        expiringNext.forEach(node -> assertEquals(today.toString(), node.get("expirationDate").asString()));
+    }
+
+    @Test
+    void productEndpointsNeverQueryTheUserTable() throws Exception {
+        long productId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM products", Long.class);
+        String body = "{\"name\":\"Milk\",\"expirationDate\":\"" + LocalDate.now().plusDays(3) + "\",\"quantity\":2}";
+
+        categoryCache.getAll();
+
+        // Each product endpoint may only touch the products table, plus the collection version for
+        // conditional reads and writes: the caller comes from the token
+        assertStatements(2, get("/api/v1/products"));
+        assertStatements(2, get("/api/v1/products").param("limit", "10"));
+        assertStatements(1, get("/api/v1/products").accept(MediaType.APPLICATION_NDJSON));
+        assertStatements(1, get("/api/v1/products/{id}", productId));
+        assertStatements(1, get("/api/v1/products/status/{status}", "GREEN"));
+        assertStatements(3, get("/api/v1/products/summary"));
+        assertStatements(3, post("/api/v1/products").contentType(MediaType.APPLICATION_JSON).content(body));
+        assertStatements(4, put("/api/v1/products/{id}", productId).contentType(MediaType.APPLICATION_JSON).content(body));
+        // Deletes also leave a tombstone for delta reads
+        assertStatements(5, delete("/api/v1/products/{id}", productId));
+    }
+
+    @Test
+    void answersConditionalGetsWithoutLoadingProducts() throws Exception {
+        long productId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM products", Long.class);
+        categoryCache.getAll();
+
+        MvcResult first = mockMvc.perform(get("/api/v1/products").header(HttpHeaders.AUTHORIZATION, token))
+                .andExpect(status().isOk())
+                .andReturn();
+        String etag = first.getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(etag);
+        String cacheControl = first.getResponse().getHeader(HttpHeaders.CACHE_CONTROL);
+        assertTrue(cacheControl.contains("no-cache") && cacheControl.contains("private"), cacheControl);
+
+        // Only the version is read: no product is loaded or serialized
+        assertStatements(1, get("/api/v1/products").header(HttpHeaders.IF_NONE_MATCH, etag));
+        assertStatements(1, get("/api/v1/products").param("limit", "10").header(HttpHeaders.IF_NONE_MATCH, etag));
+        assertStatements(1, get("/api/v1/products/summary").header(HttpHeaders.IF_NONE_MATCH, etag));
+        mockMvc.perform(get("/api/v1/products").header(HttpHeaders.AUTHORIZATION, token)
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        String body = "{\"name\":\"Milk\",\"expirationDate\":\"" + LocalDate.now().plusDays(3) + "\",\"quantity\":2}";
+        mockMvc.perform(put("/api/v1/products/{id}", productId).header(HttpHeaders.AUTHORIZATION, token)
+                        .contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isOk());
+
+        MvcResult changed = mockMvc.perform(get("/api/v1/products").header(HttpHeaders.AUTHORIZATION, token)
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertNotEquals(etag, changed.getResponse().getHeader(HttpHeaders.ETAG));
+        assertEquals(PRODUCT_COUNT, readJson(changed).size());
+    }
+
+    @Test
+    void answersConditionalCategoryRequestsFromTheCache() throws Exception {
+        String categories = mockMvc.perform(get("/api/v1/categories").header(HttpHeaders.AUTHORIZATION, token))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        String products = mockMvc.perform(get("/api/v1/products").header(HttpHeaders.AUTHORIZATION, token))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertStatements(0, get("/api/v1/categories").header(HttpHeaders.IF_NONE_MATCH, categories));
+
+        mockMvc.perform(post("/api/v1/categories").header(HttpHeaders.AUTHORIZATION, token)
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"name\":\"summary-bakery\"}"))
+                .andExpect(status().isCreated());
+
+        // Category names appear in product responses, so both collections change
+        mockMvc.perform(get("/api/v1/categories").header(HttpHeaders.AUTHORIZATION, token)
+                        .header(HttpHeaders.IF_NONE_MATCH, categories))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/v1/products").header(HttpHeaders.AUTHORIZATION, token)
+                        .header(HttpHeaders.IF_NONE_MATCH, products))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void returnsOnlyProductsChangedSinceAVersion() throws Exception {
+        List<Long> ids = jdbcTemplate.queryForList("SELECT id FROM products ORDER BY id", Long.class);
+        JsonNode initial = readJson(mockMvc.perform(get("/api/v1/products/changes")
+                        .header(HttpHeaders.AUTHORIZATION, token))
+                .andExpect(status().isOk())
+                .andReturn());
+        assertTrue(initial.get("full").asBoolean());
+        assertEquals(PRODUCT_COUNT, initial.get("changed").size());
+        String version = initial.get("version").asString();
+
+        String body = "{\"name\":\"Milk\",\"expirationDate\":\"" + LocalDate.now().plusDays(3) + "\",\"quantity\":2}";
+        long created = readJson(mockMvc.perform(post("/api/v1/products").header(HttpHeaders.AUTHORIZATION, token)
+                        .contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isCreated())
+                .andReturn()).get("id").asLong();
+        mockMvc.perform(put("/api/v1/products/{id}", ids.get(0)).header(HttpHeaders.AUTHORIZATION, token)
+                        .contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isOk());
+        mockMvc.perform(delete("/api/v1/products/{id}", ids.get(1)).header(HttpHeaders.AUTHORIZATION, token))
+                .andExpect(status().isNoContent());
+
+        JsonNode delta = readJson(mockMvc.perform(get("/api/v1/products/changes").param("since", version)
+                        .header(HttpHeaders.AUTHORIZATION, token))
+                .andExpect(status().isOk())
+                .andReturn());
+        assertFalse(delta.get("full").asBoolean());
+        List<Long> changed = new ArrayList<>();
+        delta.get("changed").forEach(product -> changed.add(product.get("id").asLong()));
+        changed.sort(null);
+        assertEquals(List.of(Math.min(ids.get(0), created), Math.max(ids.get(0), created)), changed);
+        assertEquals(1, delta.get("deleted").size());
+        assertEquals(ids.get(1), delta.get("deleted").get(0).asLong());
+
+        // Nothing new since the latest version
+        JsonNode empty = readJson(mockMvc.perform(get("/api/v1/products/changes")
+                        .param("since", delta.get("version").asString())
+                        .header(HttpHeaders.AUTHORIZATION, token))
+                .andReturn());
+        assertEquals(0, empty.get("changed").size());
+        assertEquals(0, empty.get("deleted").size());
+
+        // Days remaining moved on since yesterday's token, so it gets the whole collection again
+        String[] parts = version.split("\\.");
+        String yesterday = parts[0] + "." + (Long.parseLong(parts[1]) - 1) + "." + parts[2] + "." + parts[3];
+        JsonNode stale = readJson(mockMvc.perform(get("/api/v1/products/changes").param("since", yesterday)
+                        .header(HttpHeaders.AUTHORIZATION, token))
+                .andReturn());
+        assertTrue(stale.get("full").asBoolean());
+        assertEquals(PRODUCT_COUNT, stale.get("changed").size());
+
+        mockMvc.perform(get("/api/v1/products/changes").param("since", "not-a-version")
+                        .header(HttpHeaders.AUTHORIZATION, token))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void pushesCommittedWritesToTheEventStream() throws Exception {
+        // EventSource cannot send headers, so the stream takes the token as a parameter
+        MvcResult stream = mockMvc.perform(get("/api/v1/products/events")
+                        .param("access_token", token.substring("Bearer ".length()))
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        awaitContent(stream, "event:ready");
+
+        String body = "{\"name\":\"Milk\",\"expirationDate\":\"" + LocalDate.now().plusDays(3) + "\",\"quantity\":2}";
+        JsonNode created = readJson(mockMvc.perform(post("/api/v1/products").header(HttpHeaders.AUTHORIZATION, token)
+                        .contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isCreated())
+                .andReturn());
+        mockMvc.perform(delete("/api/v1/products/{id}", created.get("id").asLong())
+                        .header(HttpHeaders.AUTHORIZATION, token))
+                .andExpect(status().isNoContent());
+        // A rejected write publishes nothing
+        mockMvc.perform(put("/api/v1/products/{id}", created.get("id").asLong()).header(HttpHeaders.AUTHORIZATION, token)
+                        .contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isNotFound());
+
+        String events = awaitContent(stream, "event:deleted");
+        assertTrue(events.indexOf("event:created") < events.indexOf("event:deleted"));
+        assertTrue(events.contains("\"name\":\"Milk\""));
+        assertFalse(events.contains("event:updated"));
+        String latest = readJson(mockMvc.perform(get("/api/v1/products/changes").header(HttpHeaders.AUTHORIZATION, token))
+                .andReturn()).get("version").asString();
+        assertTrue(events.contains("id:" + latest));
+
+        mockMvc.perform(get("/api/v1/products/events").param("access_token", "invalid"))
+                .andExpect(status().isUnauthorized());
+        // Only the event stream accepts the parameter
+        mockMvc.perform(get("/api/v1/products").param("access_token", token.substring("Bearer ".length())))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void resolvesCategoriesFromTheCacheOnWrites() throws Exception {
+        jdbcTemplate.update("INSERT INTO categories (name) VALUES ('summary-pantry')");
+        long categoryId = jdbcTemplate.queryForObject("SELECT id FROM categories WHERE name = 'summary-pantry'", Long.class);
+        CategoryFixtures.changed(collectionVersionService, categoryCache);
+        String body = "{\"name\":\"Rice\",\"expirationDate\":\"" + LocalDate.now().plusDays(30)
+                + "\",\"quantity\":1,\"categoryId\":" + categoryId + "}";
+        mockMvc.perform(get("/api/v1/categories").header(HttpHeaders.AUTHORIZATION, token)).andExpect(status().isOk());
+
+        // Only the version bump and the insert: the category is checked against the cache and referenced
+        // without loading it
+        assertStatements(3, post("/api/v1/products").contentType(MediaType.APPLICATION_JSON).content(body));
+    }
+
+    @Test
+    void listsProductsWithCategoryNamesWithoutLoadingEntities() throws Exception {
+        jdbcTemplate.update("INSERT INTO categories (name) VALUES ('summary-stale')");
+        long categoryId = jdbcTemplate.queryForObject("SELECT id FROM categories WHERE name = 'summary-stale'", Long.class);
+        jdbcTemplate.update("UPDATE products SET category_id = ?", categoryId);
+        // A cache holding a stale name proves the names come from the listing query itself
+        CategoryFixtures.changed(collectionVersionService, categoryCache);
+        categoryCache.getAll();
+        jdbcTemplate.update("UPDATE categories SET name = 'summary-frozen' WHERE id = ?", categoryId);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        for (MockHttpServletRequestBuilder request : List.of(
+                get("/api/v1/products"),
+                get("/api/v1/products").param("limit", "10"),
+                get("/api/v1/products/status/{status}", "YELLOW"))) {
+            JsonNode products = readJson(mockMvc.perform(request.header(HttpHeaders.AUTHORIZATION, token))
+                    .andExpect(status().isOk())
+                    .andReturn());
+            JsonNode items = products.has("items") ? products.get("items") : products;
+            assertTrue(items.size() > 0);
+            items.forEach(product -> {
+                assertEquals("summary-frozen", product.get("categoryName").asString());
+                assertEquals(categoryId, product.get("categoryId").asLong());
+            });
+        }
+
+        assertEquals(0, statistics.getEntityLoadCount());
+        // Three listings, two of them behind a version read
+        assertEquals(5, statistics.getQueryExecutionCount());
+    }
+
+    @Test
+    void combinesFiltersAndSortingInOneQuery() throws Exception {
+        jdbcTemplate.update("INSERT INTO categories (name) VALUES ('summary-snacks')");
+        long categoryId = jdbcTemplate.queryForObject("SELECT id FROM categories WHERE name = 'summary-snacks'", Long.class);
+        jdbcTemplate.update("UPDATE products SET category_id = ? WHERE name IN ('Product 11', 'Product 12', 'Product 13')", categoryId);
+        CategoryFixtures.changed(collectionVersionService, categoryCache);
+        LocalDate today = LocalDate.now();
+
+        // "Product 1" prefix is 1 and 10-19; of those, days 1-2 leave 1, 11, 12, 16 and 17
+        assertNames(List.of("Product 17", "Product 16", "Product 12", "Product 11", "Product 1"), get("/api/v1/products")
+                .param("name", "product 1")
+                .param("nameMatch", "PREFIX")
+                .param("expiresFrom", today.plusDays(1).toString())
+                .param("expiresTo", today.plusDays(2).toString())
+                .param("sort", "name,desc"));
+        assertNames(List.of("Product 11", "Product 12"), get("/api/v1/products")
+                .param("categoryId", String.valueOf(categoryId))
+                .param("expiresTo", today.plusDays(2).toString()));
+        assertNames(List.of("Product 2", "Product 20", "Product 21", "Product 22", "Product 23", "Product 24"),
+                get("/api/v1/products").param("name", "CT 2").param("sort", "name"));
+        // The search text also matches the category name
+        assertNames(List.of("Product 11", "Product 12", "Product 13"),
+                get("/api/v1/products").param("name", "Snacks").param("sort", "name"));
+        assertNames(List.of(), get("/api/v1/products").param("status", "RED"));
+        // LIKE wildcards in the search text match literally
+        assertNames(List.of(), get("/api/v1/products").param("name", "%"));
+
+        JsonNode yellow = readJson(mockMvc.perform(get("/api/v1/products").param("status", "YELLOW")
+                        .header(HttpHeaders.AUTHORIZATION, token))
+                .andExpect(status().isOk())
+                .andReturn());
+        assertEquals(PRODUCT_COUNT, yellow.size());
+    }
+
+    @Test
+    void rejectsInvalidSortsAndDateRanges() throws Exception {
+        // Keyset pages cannot be filtered, so the combination is refused rather than ignored
+        mockMvc.perform(get("/api/v1/products").param("limit", "10").param("name", "product")
+                        .header(HttpHeaders.AUTHORIZATION, token))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/v1/products").param("sort", "password")
+                        .header(HttpHeaders.AUTHORIZATION, token))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/v1/products").param("sort", "name,sideways")
+                        .header(HttpHeaders.AUTHORIZATION, token))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/v1/products")
+                        .param("expiresFrom", LocalDate.now().plusDays(3).toString())
+                        .param("expiresTo", LocalDate.now().toString())
+                        .header(HttpHeaders.AUTHORIZATION, token))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void appliesMixedOperationsInOneBatchWithAFixedNumberOfStatements() throws Exception {
+        List<Long> ids = jdbcTemplate.queryForList("SELECT id FROM products ORDER BY id", Long.class);
+        LocalDate expiration = LocalDate.now().plusDays(30);
+        String body = "[" + batchOperation("UPDATE", ids.get(0), importRow("Oat milk", expiration, 4, null)) + ","
+                + batchOperation("UPDATE", ids.get(1), importRow("Rye bread", expiration, 1, null)) + ","
+                + "{\"op\":\"ADJUST_QUANTITY\",\"id\":" + ids.get(2) + ",\"quantityDelta\":3},"
+                + "{\"op\":\"ADJUST_QUANTITY\",\"id\":" + ids.get(3) + ",\"quantityDelta\":5},"
+                + batchOperation("DELETE", ids.get(4), null) + ","
+                + batchOperation("DELETE", ids.get(5), null) + "]";
+
+        // Load the targets, bump the version, one batch of updates, one conditional update per adjustment,
+        // the tombstones and the deletions
+        assertStatements(8, post("/api/v1/products/batch").contentType(MediaType.APPLICATION_JSON).content(body));
+
+        assertEquals("Oat milk", jdbcTemplate.queryForObject(
+                "SELECT name FROM products WHERE id = ?", String.class, ids.get(0)));
+        assertEquals(4, jdbcTemplate.queryForObject(
+                "SELECT quantity FROM products WHERE id = ?", Integer.class, ids.get(2)));
+        assertEquals(PRODUCT_COUNT - 2, productRepository.count());
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM product_tombstones", Integer.class));
+        // One version for the whole batch
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT version FROM collection_versions WHERE name = ?", Long.class, "products:" + userId));
+        assertEquals(4, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM products WHERE change_version = 1", Integer.class));
+    }
+
+    @Test
+    void adjustsAndUpdatesExpiredProducts() throws Exception {
+        List<Long> ids = jdbcTemplate.queryForList("SELECT id FROM products ORDER BY id", Long.class);
+        jdbcTemplate.update("UPDATE products SET expiration_date = ?, quantity = 5 WHERE id IN (?, ?)",
+                Date.valueOf(LocalDate.now().minusDays(3)), ids.get(0), ids.get(1));
+        LocalDate expiration = LocalDate.now().plusDays(10);
+        String body = "[{\"op\":\"ADJUST_QUANTITY\",\"id\":" + ids.get(0) + ",\"quantityDelta\":-4},"
+                + batchOperation("UPDATE", ids.get(1), importRow("Fresh batch", expiration, 2, null)) + "]";
+
+        JsonNode result = readJson(mockMvc.perform(post("/api/v1/products/batch")
+                        .header(HttpHeaders.AUTHORIZATION, token)
+                        .contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isOk())
+                .andReturn());
+
+        assertEquals(2, result.get("applied").asInt());
+        assertEquals(1, result.get("results").get(0).get("product").get("quantity").asInt());
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT quantity FROM products WHERE id = ?", Integer.class, ids.get(0)));
+        assertEquals(Date.valueOf(LocalDate.now().minusDays(3)), jdbcTemplate.queryForObject(
+                "SELECT expiration_date FROM products WHERE id = ?", Date.class, ids.get(0)));
+        assertEquals(Date.valueOf(expiration), jdbcTemplate.queryForObject(
+                "SELECT expiration_date FROM products WHERE id = ?", Date.class, ids.get(1)));
+    }
+
+    @Test
+    void reportsEachOperationAndRejectsTheWholeBatchByDefault() throws Exception {
+        List<Long> ids = jdbcTemplate.queryForList("SELECT id FROM products ORDER BY id", Long.class);
+        User stranger = userRepository.save(User.builder()
+                .username("stranger")
+                .email("stranger@example.com")
+                .password("secret")
+                .build());
+        jdbcTemplate.update("INSERT INTO products (id, name, expiration_date, quantity, entry_date, notified, user_id, "
+                        + "expiry_status) VALUES (?, 'Theirs', ?, 1, ?, FALSE, ?, 'GREEN')",
+                ProductIds.prepend(jdbcTemplate, List.<Object[]>of(new Object[]{
+                        Date.valueOf(LocalDate.now()), Date.valueOf(LocalDate.now()), stranger.getId()})).get(0));
+        Long theirs = jdbcTemplate.queryForObject("SELECT id FROM products WHERE name = 'Theirs'", Long.class);
+        String body = "[" + batchOperation("DELETE", ids.get(0), null) + ","
+                + batchOperation("DELETE", theirs, null) + ","
+                + "{\"op\":\"ADJUST_QUANTITY\",\"id\":" + ids.get(1) + ",\"quantityDelta\":-1},"
+                + batchOperation("UPDATE", ids.get(2), importRow("", LocalDate.now().plusDays(1), 1, null)) + ","
+                + batchOperation("DELETE", ids.get(0), null) + ","
+                + "{\"op\":\"ADJUST_QUANTITY\",\"id\":" + ids.get(3) + ",\"quantityDelta\":2147483647},"
+                + "{\"op\":\"ADJUST_QUANTITY\",\"id\":" + ids.get(4) + ",\"quantityDelta\":100}]";
+        // Close enough to the int limit that the delta would wrap around
+        jdbcTemplate.update("UPDATE products SET quantity = ? WHERE id = ?", Integer.MAX_VALUE - 10, ids.get(4));
+
+        JsonNode rejected = readJson(mockMvc.perform(post("/api/v1/products/batch")
+                        .contentType(MediaType.APPLICATION_JSON).content(body)
+                        .header(HttpHeaders.AUTHORIZATION, token))
+                .andExpect(status().isBadRequest())
+                .andReturn());
+        assertEquals(0, rejected.get("applied").asInt());
+        List<String> outcomes = new ArrayList<>();
+        rejected.get("results").forEach(result -> outcomes.add(result.get("outcome").asString()));
+        // Another user's product is indistinguishable from a missing one
+        assertEquals(List.of("SKIPPED", "NOT_FOUND", "INVALID", "INVALID", "INVALID", "INVALID", "INVALID"), outcomes);
+        assertEquals(List.of("quantityDelta: must be less than or equal to 100000"),
+                readMessages(rejected.get("results").get(5)));
+        assertEquals(List.of("quantityDelta: would leave a quantity above " + Integer.MAX_VALUE),
+                readMessages(rejected.get("results").get(6)));
+        assertEquals(Integer.MAX_VALUE - 10, jdbcTemplate.queryForObject(
+                "SELECT quantity FROM products WHERE id = ?", Integer.class, ids.get(4)));
+        assertEquals(PRODUCT_COUNT + 1, productRepository.count());
+
+        JsonNode partial = readJson(mockMvc.perform(post("/api/v1/products/batch").param("mode", "PARTIAL")
+                        .contentType(MediaType.APPLICATION_JSON).content(body)
+                        .header(HttpHeaders.AUTHORIZATION, token))
+                .andExpect(status().isOk())
+                .andReturn());
+        assertEquals(1, partial.get("applied").asInt());
+        assertEquals("APPLIED", partial.get("results").get(0).get("outcome").asString());
+        assertEquals(PRODUCT_COUNT, productRepository.count());
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM products WHERE id = ?", Integer.class, theirs));
+    }
+
+    @Test
+    void rejectsTheWholeImportWhenAnyRowIsInvalid() throws Exception {
+        String body = "[" + importRow("Beans", LocalDate.now().plusDays(10), 2, null) + ","
+                + importRow("", LocalDate.now().plusDays(10), 0, 999_999L) + "]";
+
+        JsonNode result = readJson(mockMvc.perform(post("/api/v1/products/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body)
+                        .header(HttpHeaders.AUTHORIZATION, token))
+                .andExpect(status().isBadRequest())
+                .andReturn());
+
+        assertEquals(0, result.get("imported").asInt());
+        assertEquals(2, result.get("errors").get(0).get("row").asInt());
+        assertEquals(3, result.get("errors").get(0).get("messages").size());
+        assertEquals(PRODUCT_COUNT, productRepository.count());
+    }
+
+    @Test
+    void importsTheValidRowsInPartialMode() throws Exception {
+        String body = "[" + importRow("Beans", LocalDate.now().plusDays(10), 2, null) + ","
+                + importRow("Old bread", LocalDate.now().minusDays(1), 1, null) + ","
+                + importRow("Rice", LocalDate.now().plusDays(60), 1, null) + "]";
+
+        JsonNode result = readJson(mockMvc.perform(post("/api/v1/products/bulk")
+                        .param("mode", "PARTIAL")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body)
+                        .header(HttpHeaders.AUTHORIZATION, token))
+                .andExpect(status().isOk())
+                .andReturn());
+
+        assertEquals(3, result.get("received").asInt());
+        assertEquals(2, result.get("imported").asInt());
+        assertEquals(1, result.get("errors").size());
+        assertEquals(2, result.get("errors").get(0).get("row").asInt());
+        assertEquals(PRODUCT_COUNT + 2, productRepository.count());
+    }
+
+    @Test
+    void reimportsItsOwnCsvExport() throws Exception {
+        MvcResult export = mockMvc.perform(get("/api/v1/products/export")
+                        .param("format", "csv")
+                        .header(HttpHeaders.AUTHORIZATION, token))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("text/csv"))
+                .andReturn();
+        String csv = export.getResponse().getContentAsString();
+        assertEquals(PRODUCT_COUNT + 1, csv.strip().split("\n").length);
+
+        mockMvc.perform(post("/api/v1/products/bulk")
+                        .contentType("text/csv")
+                        .content(csv)
+                        .header(HttpHeaders.AUTHORIZATION, token))
+                .andExpect(status().isCreated());
+
+        assertEquals(2L * PRODUCT_COUNT, productRepository.count());
+    }
+
+    @Test
+    void exportsNdjsonAndRejectsUnknownFormats() throws Exception {
+        MvcResult export = mockMvc.perform(get("/api/v1/products/export")
+                        .param("format", "ndjson")
+                        .header(HttpHeaders.AUTHORIZATION, token))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andReturn();
+        assertEquals(PRODUCT_COUNT, export.getResponse().getContentAsString().strip().split("\n").length);
+
+        mockMvc.perform(get("/api/v1/products/export")
+                        .param("format", "xml")
+                        .header(HttpHeaders.AUTHORIZATION, token))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void insertsImportedRowsInJdbcBatches() throws Exception {
+        int rows = 1000;
+        StringBuilder body = new StringBuilder("[");
+        for (int i = 0; i < rows; i++) {
+            body.append(i == 0 ? "" : ",").append(importRow("Imported " + i, LocalDate.now().plusDays(i % 30), 1, null));
+        }
+        body.append("]");
+        SqlCaptureInspector.clear();
+
+        mockMvc.perform(post("/api/v1/products/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body.toString())
+                        .header(HttpHeaders.AUTHORIZATION, token))
+                .andExpect(status().isCreated());
+
+        // The inspector sees each prepared statement once, however many rows are batched into it
+        long inserts = SqlCaptureInspector.getStatements().stream()
+                .filter(sql -> sql.startsWith("insert into products"))
+                .count();
+        assertEquals(rows / 50, inserts);
+        assertEquals(PRODUCT_COUNT + rows, productRepository.count());
+    }
+
+    private static List<String> readMessages(JsonNode result) {
+        List<String> messages = new ArrayList<>();
+        result.get("messages").forEach(message -> messages.add(message.asString()));
+        return messages;
+    }
+
+    private void assertNames(List<String> expected, MockHttpServletRequestBuilder request) throws Exception {
+        JsonNode products = readJson(mockMvc.perform(request.header(HttpHeaders.AUTHORIZATION, token))
+                .andExpect(status().isOk())
+                .andReturn());
+        List<String> names = new ArrayList<>();
+        products.forEach(product -> names.add(product.get("name").asString()));
+        assertEquals(expected, names);
+    }
+
+    private String batchOperation(String op, Long id, String product) {
+        return "{\"op\":\"" + op + "\",\"id\":" + id + (product != null ? ",\"product\":" + product : "") + "}";
+    }
+
+    private String importRow(String name, LocalDate expirationDate, int quantity, Long categoryId) {
+        return "{\"name\":\"" + name + "\",\"expirationDate\":\"" + expirationDate
+                + "\",\"quantity\":" + quantity + ",\"categoryId\":" + categoryId + "}";
+    }
+
+    private void assertStatements(long expected, MockHttpServletRequestBuilder request) throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        SqlCaptureInspector.clear();
+
+        int status = mockMvc.perform(request.header(HttpHeaders.AUTHORIZATION, token)).andReturn().getResponse().getStatus();
+
+        assertTrue(status < 300 || status == 304, "Unexpected status " + status);
+        assertEquals(0, statistics.getEntityStatistics(User.class.getName()).getLoadCount());
+        // Id block reservations from products_seq come and go with the allocation size, so they are not counted
+        List<String> statements = SqlCaptureInspector.getStatements().stream()
+                .filter(sql -> !sql.contains("products_seq"))
+                .toList();
+        assertEquals(expected, statements.size(), () -> String.join("\n", statements));
+    }
+
+    private String awaitContent(MvcResult stream, String expected) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        String content = stream.getResponse().getContentAsString();
+        while (!content.contains(expected)) {
+            assertTrue(System.nanoTime() < deadline, "no " + expected + " in " + content);
+            Thread.sleep(10);
+            content = stream.getResponse().getContentAsString();
+        }
+        return content;
+    }
+
+    private JsonNode readJson(MvcResult result) throws Exception {
+        return objectMapper.readTree(result.getResponse().getContentAsString());
+    }
+}
@@ -0,0 +1,232 @@
+package SmartPantry.demo.controllers;
+
+import SmartPantry.demo.configs.JwtUtil;
+import SmartPantry.demo.entities.User;
+import SmartPantry.demo.repositories.ProductRepository;
+import SmartPantry.demo.repositories.UserRepository;
+import SmartPantry.demo.support.ProductIds;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Hammers one product with concurrent quantity changes and checks that every one of them is accounted for.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class ProductQuantityConcurrencyTest {
+
+    private static final int THREADS = 8;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private String token;
+    private long userId;
+
+    @BeforeEach
+    void seedUser() {
+        User user = userRepository.save(User.builder()
+                .username("consumer")
+                .email("consumer@example.com")
+                .password("secret")
+                .build());
+        token = "Bearer " + jwtUtil.generateToken(user.getId(), user.getUsername());
+        userId = user.getId();
+        jdbcTemplate.update("INSERT INTO collection_versions (name, version) VALUES (?, 0)", "products:" + userId);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        productRepository.deleteAllInBatch();
+        userRepository.deleteAll();
+        jdbcTemplate.update("DELETE FROM product_tombstones");
+        jdbcTemplate.update("DELETE FROM collection_versions WHERE name LIKE 'products:%'");
+    }
+
+    @Test
+    void concurrentConsumesAndRestocksLoseNoUpdates() throws Exception {
+        long id = seedProduct(1_000);
+        int perThread = 50;
+
+        Map<Integer, AtomicInteger> statuses = run(perThread, i -> i % 2 == 0
+                ? patch("/api/v1/products/{id}/consume", id).content("{\"amount\":2}")
+                : patch("/api/v1/products/{id}/restock", id).content("{\"amount\":1}"));
+
+        assertEquals(Map.of(200, THREADS * perThread), plain(statuses));
+        // Each thread took 2 and put back 1, 25 times
+        assertEquals(1_000 - THREADS * 25, quantity(id));
+        assertEquals(THREADS * perThread, jdbcTemplate.queryForObject(
+                "SELECT lock_version FROM products WHERE id = ?", Integer.class, id));
+    }
+
+    @Test
+    void neverConsumesMoreThanIsLeft() throws Exception {
+        long id = seedProduct(40);
+
+        Map<Integer, AtomicInteger> statuses = run(10,
+                i -> patch("/api/v1/products/{id}/consume", id).content("{\"amount\":1}"));
+
+        // 39 units taken, the last one deletes the product, and the other 40 attempts find it gone
+        assertEquals(Map.of(200, 39, 204, 1, 404, 40), plain(statuses));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM products WHERE id = ?", Integer.class, id));
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM product_tombstones WHERE product_id = ?", Integer.class, id));
+    }
+
+    @Test
+    void rejectsAFullUpdateBasedOnAStaleVersion() throws Exception {
+        long id = seedProduct(5);
+        long read = readJson(mockMvc.perform(get("/api/v1/products/{id}", id).header(HttpHeaders.AUTHORIZATION, token))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString()).get("lockVersion").asLong();
+
+        // Another device consumes one after this client read the product
+        mockMvc.perform(patch("/api/v1/products/{id}/consume", id).header(HttpHeaders.AUTHORIZATION, token)
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"amount\":1}"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(put("/api/v1/products/{id}", id).header(HttpHeaders.AUTHORIZATION, token)
+                        .contentType(MediaType.APPLICATION_JSON).content(productBody(5, read)))
+                .andExpect(status().isConflict());
+        assertEquals(4, quantity(id));
+
+        JsonNode updated = readJson(mockMvc.perform(put("/api/v1/products/{id}", id)
+                        .header(HttpHeaders.AUTHORIZATION, token)
+                        .contentType(MediaType.APPLICATION_JSON).content(productBody(7, read + 1)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+        assertEquals(7, updated.get("quantity").asInt());
+        assertEquals(read + 2, updated.get("lockVersion").asLong());
+
+        mockMvc.perform(patch("/api/v1/products/{id}/consume", id).header(HttpHeaders.AUTHORIZATION, token)
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"amount\":8}"))
+                .andExpect(status().isConflict());
+        mockMvc.perform(patch("/api/v1/products/{id}/consume", id).header(HttpHeaders.AUTHORIZATION, token)
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"amount\":0}"))
+                .andExpect(status().isBadRequest());
+        assertEquals(7, quantity(id));
+    }
+
+    @Test
+    void refusesToRestockPastTheLargestQuantity() throws Exception {
+        long id = seedProduct(Integer.MAX_VALUE - 5);
+
+        mockMvc.perform(patch("/api/v1/products/{id}/restock", id).header(HttpHeaders.AUTHORIZATION, token)
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"amount\":6}"))
+                .andExpect(status().isConflict());
+        assertEquals(Integer.MAX_VALUE - 5, quantity(id));
+
+        mockMvc.perform(patch("/api/v1/products/{id}/restock", id).header(HttpHeaders.AUTHORIZATION, token)
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"amount\":5}"))
+                .andExpect(status().isOk());
+        assertEquals(Integer.MAX_VALUE, quantity(id));
+    }
+
+    /**
+     * Runs {@code perThread} requests on each of {@link #THREADS} threads, all released at once.
+     *
+     * @return how many responses came back with each status
+     */
+    private Map<Integer, AtomicInteger> run(int perThread, IntFunction<MockHttpServletRequestBuilder> requests) throws Exception {
+        Map<Integer, AtomicInteger> statuses = new ConcurrentHashMap<>();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < perThread; i++) {
+                        int status = mockMvc.perform(requests.apply(i)
+                                        .header(HttpHeaders.AUTHORIZATION, token)
+                                        .contentType(MediaType.APPLICATION_JSON))
+                                .andReturn().getResponse().getStatus();
+                        statuses.computeIfAbsent(status, s -> new AtomicInteger()).incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        return statuses;
+    }
+
+    private long seedProduct(int quantity) {
+        LocalDate today = LocalDate.now();
+        Object[] row = ProductIds.prepend(jdbcTemplate, List.<Object[]>of(new Object[]{
+                quantity, Date.valueOf(today.plusDays(20)), Date.valueOf(today), userId})).get(0);
+        jdbcTemplate.update("INSERT INTO products (id, name, quantity, expiration_date, entry_date, notified, user_id, "
+                + "expiry_status) VALUES (?, 'Rice', ?, ?, ?, FALSE, ?, 'GREEN')", row);
+        return (Long) row[0];
+    }
+
+    private int quantity(long id) {
+        return jdbcTemplate.queryForObject("SELECT quantity FROM products WHERE id = ?", Integer.class, id);
+    }
+
+    private String productBody(int quantity, long lockVersion) {
+        return "{\"name\":\"Rice\",\"expirationDate\":\"" + LocalDate.now().plusDays(20)
+                + "\",\"quantity\":" + quantity + ",\"lockVersion\":" + lockVersion + "}";
+    }
+
+    private JsonNode readJson(String content) {
+        return objectMapper.readTree(content);
+    }
+
+    private static Map<Integer, Integer> plain(Map<Integer, AtomicInteger> statuses) {
+        Map<Integer, Integer> counts = new HashMap<>();
+        statuses.forEach((status, count) -> counts.put(status, count.get()));
+        return counts;
+    }
+}
@@ -0,0 +1,194 @@
+package SmartPantry.demo.controllers;
+
+import SmartPantry.demo.configs.JwtUtil;
+import SmartPantry.demo.configs.SqlStatementCountingFilter;
+import SmartPantry.demo.entities.User;
+import SmartPantry.demo.repositories.ProductRepository;
+import SmartPantry.demo.repositories.UserRepository;
+import SmartPantry.demo.services.CategoryCache;
+import SmartPantry.demo.services.CollectionVersionService;
+import SmartPantry.demo.support.CategoryFixtures;
+import SmartPantry.demo.support.ProductIds;
+import SmartPantry.demo.support.QueryBudget;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Query budget of every controller method. Products are spread over several categories, so a lazy
+ * association touched per row shows up as a budget overrun instead of going unnoticed.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class QueryBudgetTest {
+
+    private static final int PRODUCT_COUNT = 30;
+    private static final int CATEGORY_COUNT = 3;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CategoryCache categoryCache;
+
+    @Autowired
+    private CollectionVersionService collectionVersionService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private String token;
+    private long productId;
+    private long categoryId;
+
+    @BeforeEach
+    void seedProducts() {
+        User user = userRepository.save(User.builder()
+                .username("budget")
+                .email("budget@example.com")
+                .password("secret")
+                .build());
+        token = "Bearer " + jwtUtil.generateToken(user.getId(), user.getUsername());
+        // Budgets are for a user past their first write, whose version counter exists
+        jdbcTemplate.update("INSERT INTO collection_versions (name, version) VALUES (?, 0)", "products:" + user.getId());
+
+        List<Long> categoryIds = new ArrayList<>();
+        for (int c = 0; c < CATEGORY_COUNT; c++) {
+            jdbcTemplate.update("INSERT INTO categories (name) VALUES (?)", "budget-" + c);
+            categoryIds.add(jdbcTemplate.queryForObject("SELECT id FROM categories WHERE name = ?", Long.class, "budget-" + c));
+        }
+        // Budgets are for a warm category cache; a cold one adds a single load
+        CategoryFixtures.changed(collectionVersionService, categoryCache);
+        categoryCache.getAll();
+        categoryId = categoryIds.getFirst();
+
+        LocalDate today = LocalDate.now();
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < PRODUCT_COUNT; i++) {
+            rows.add(new Object[]{"Budget " + i, Date.valueOf(today.plusDays(i % 10)), Date.valueOf(today),
+                    user.getId(), categoryIds.get(i % CATEGORY_COUNT)});
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO products (id, name, expiration_date, quantity, entry_date, notified, user_id, category_id, "
+                        + "expiry_status) VALUES (?, ?, ?, 1, ?, FALSE, ?, ?, 'GREEN')",
+                ProductIds.prepend(jdbcTemplate, rows));
+        productId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM products", Long.class);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        productRepository.deleteAllInBatch();
+        userRepository.deleteAll();
+        jdbcTemplate.update("DELETE FROM categories WHERE name LIKE 'budget-%'");
+        CategoryFixtures.changed(collectionVersionService, categoryCache);
+        jdbcTemplate.update("DELETE FROM product_tombstones");
+        jdbcTemplate.update("DELETE FROM collection_versions WHERE name LIKE 'products:%'");
+    }
+
+    @Test
+    void productReadsStayWithinBudget() throws Exception {
+        // Conditional endpoints read the collection version before the rows
+        assertWithin(2, get("/api/v1/products"));
+        assertWithin(2, get("/api/v1/products").param("limit", "10"));
+        assertWithin(1, get("/api/v1/products").accept(MediaType.APPLICATION_NDJSON));
+        assertWithin(1, get("/api/v1/products/{id}", productId));
+        assertWithin(1, get("/api/v1/products/status/{status}", "GREEN"));
+        assertWithin(3, get("/api/v1/products/summary"));
+        assertWithin(1, get("/api/v1/products/export").param("format", "csv"));
+        assertWithin(3, get("/api/v1/products/changes"));
+    }
+
+    @Test
+    void productWritesStayWithinBudget() throws Exception {
+        String body = "{\"name\":\"Milk\",\"expirationDate\":\"" + LocalDate.now().plusDays(3)
+                + "\",\"quantity\":2,\"categoryId\":" + categoryId + "}";
+
+        // Writes bump the collection version and may also reserve a block of ids from the product sequence
+        assertWithin(4, post("/api/v1/products").contentType(MediaType.APPLICATION_JSON).content(body));
+        assertWithin(4, put("/api/v1/products/{id}", productId).contentType(MediaType.APPLICATION_JSON).content(body));
+        assertWithin(5, delete("/api/v1/products/{id}", productId));
+        assertWithin(4, post("/api/v1/products/bulk").contentType(MediaType.APPLICATION_JSON)
+                .content("[" + body + "," + body + "," + body + "]"));
+        List<Long> ids = jdbcTemplate.queryForList("SELECT id FROM products ORDER BY id LIMIT 3", Long.class);
+        // Conditional quantity changes: the version bump, one UPDATE and the reload for the response
+        assertWithin(4, patch("/api/v1/products/{id}/restock", ids.get(1)).contentType(MediaType.APPLICATION_JSON)
+                .content("{\"amount\":2}"));
+        assertWithin(4, patch("/api/v1/products/{id}/consume", ids.get(1)).contentType(MediaType.APPLICATION_JSON)
+                .content("{\"amount\":1}"));
+        // Batches: the targets, the version, the update batch, one UPDATE per adjustment, tombstones and deletions
+        assertWithin(7, post("/api/v1/products/batch").contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"op\":\"UPDATE\",\"id\":" + ids.get(0) + ",\"product\":" + body + "},"
+                        + "{\"op\":\"ADJUST_QUANTITY\",\"id\":" + ids.get(1) + ",\"quantityDelta\":2},"
+                        + "{\"op\":\"DELETE\",\"id\":" + ids.get(2) + "}]"));
+    }
+
+    @Test
+    void categoryEndpointsStayWithinBudget() throws Exception {
+        // Served from the category cache
+        assertWithin(0, get("/api/v1/categories"));
+    }
+
+    @Test
+    void exposesRequestTimersHibernateStatisticsAndPoolGauges() throws Exception {
+        assertWithin(2, get("/api/v1/products"));
+
+        DistributionSummary statements = meterRegistry.find(SqlStatementCountingFilter.METRIC_NAME)
+                .tags("method", "GET", "uri", "/api/v1/products")
+                .summary();
+        assertNotNull(statements);
+        assertTrue(statements.count() > 0);
+
+        for (String metric : List.of("http.server.requests", "hibernate.statements", "hibernate.entities.loads",
+                "hibernate.cache.query.requests", "hikaricp.connections.active",
+                SqlStatementCountingFilter.METRIC_NAME)) {
+            mockMvc.perform(get("/actuator/metrics/{name}", metric).header(HttpHeaders.AUTHORIZATION, token))
+                    .andExpect(status().isOk());
+        }
+        for (String result : List.of("hit", "miss")) {
+            mockMvc.perform(get("/actuator/metrics/cache.gets").param("tag", "cache:categories", "result:" + result)
+                            .header(HttpHeaders.AUTHORIZATION, token))
+                    .andExpect(status().isOk());
+        }
+        mockMvc.perform(get("/actuator/health")).andExpect(status().isOk());
+    }
+
+    private void assertWithin(int budget, MockHttpServletRequestBuilder request) throws Exception {
+        QueryBudget.assertWithin(mockMvc, budget, request.header(HttpHeaders.AUTHORIZATION, token));
+    }
+}
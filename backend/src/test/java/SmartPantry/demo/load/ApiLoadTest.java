@@ -0,0 +1,284 @@
+package SmartPantry.demo.load;
+
+import SmartPantry.demo.entities.enums.ExpiryStatus;
+import SmartPantry.demo.services.CategoryCache;
+import SmartPantry.demo.services.CollectionVersionService;
+import SmartPantry.demo.support.CategoryFixtures;
+import SmartPantry.demo.support.LoadDataSeeder;
+import SmartPantry.demo.support.PinnedThreadRecorder;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Drives a realistic request mix against the running application from concurrent virtual-thread clients
+ * and reports p50/p95/p99 latency and throughput per endpoint.
+ * <p>
+ * The default size keeps the regular build fast; the {@code load} Maven profile runs it with a larger
+ * data set and repeats it on platform threads for comparison ({@link PlatformThreadApiLoadTest}).
+ * Every {@code load.*} property can be overridden with {@code -D}.
+ * Connection pool wait and hold times are reported next to the latencies ({@link LegacySettingsApiLoadTest} gives
+ * the same run with the untuned persistence settings).
+ * The report is logged and written to {@code target/load-test-report-<threads>-<settings>.json}.
+ * While running on virtual threads, JFR pinning events through application code fail the test.
+ */
+@Slf4j
+// Every simulated client logs in from the loopback address, so the per-address login limit is lifted, and all of
+// them log in at once, a burst that can queue for BCrypt longer than the default timeout on a small machine
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"auth.rate-limit.enabled=false", "auth.hashing.timeout-ms=60000"})
+class ApiLoadTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private CategoryCache categoryCache;
+
+    @Autowired
+    private CollectionVersionService collectionVersionService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Value("${load.settings:tuned}")
+    private String settings;
+
+    @Value("${load.users:20}")
+    private int users;
+
+    @Value("${load.products-per-user:50}")
+    private int productsPerUser;
+
+    @Value("${load.categories:5}")
+    private int categories;
+
+    @Value("${load.clients:16}")
+    private int clients;
+
+    @Value("${load.requests-per-client:25}")
+    private int requestsPerClient;
+
+    private LoadDataSeeder seeder;
+    private LoadDataSeeder.SeededData data;
+    private HttpClient httpClient;
+    private final LatencyRecorder recorder = new LatencyRecorder();
+
+    @BeforeEach
+    void seed() {
+        seeder = new LoadDataSeeder(jdbcTemplate, passwordEncoder);
+        long start = System.nanoTime();
+        data = seeder.seed(users, productsPerUser, categories);
+        CategoryFixtures.changed(collectionVersionService, categoryCache);
+        log.info("Seeded {} users, {} categories and {} products in {} ms", data.userIds().size(),
+                data.categoryIds().size(), data.products(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        seeder.clear();
+        CategoryFixtures.changed(collectionVersionService, categoryCache);
+    }
+
+    @Test
+    void sustainsMixedTrafficWithoutErrors() throws Exception {
+        List<String> usernames = new ArrayList<>(data.userIds().keySet());
+
+        PoolUsageRecorder pool = new PoolUsageRecorder(meterRegistry);
+        long start = System.nanoTime();
+        long elapsed;
+        List<String> pinnedThreads;
+        try (PinnedThreadRecorder pinning = new PinnedThreadRecorder();
+             ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            httpClient = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .executor(executor)
+                    .build();
+            List<Future<?>> futures = new ArrayList<>(clients);
+            for (int client = 0; client < clients; client++) {
+                String username = usernames.get(client % usernames.size());
+                futures.add(executor.submit(() -> {
+                    runClient(username);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            elapsed = System.nanoTime() - start;
+            pinnedThreads = pinning.stopAndCollectApplicationPinning();
+        }
+
+        String threads = virtualThreads ? "virtual" : "platform";
+        Map<String, LatencyRecorder.Summary> report = recorder.summarise(elapsed);
+        PoolUsageRecorder.Summary poolUsage = pool.summarise();
+        double throughput = report.values().stream().mapToInt(LatencyRecorder.Summary::requests).sum() / (elapsed / 1e9);
+        log.info(String.format("Load run on %s threads with %s settings: %d clients x %d requests in %d ms, %.1f req/s",
+                threads, settings, clients, requestsPerClient, elapsed / 1_000_000, throughput));
+        report.forEach((endpoint, summary) -> log.info(String.format("%-32s %s", endpoint, summary)));
+        log.info(String.format("%-32s %s", "Connection pool", poolUsage));
+        Path reportFile = Path.of("target", "load-test-report-" + threads + "-" + settings + ".json");
+        Files.createDirectories(reportFile.getParent());
+        Map<String, Object> fullReport = new LinkedHashMap<>();
+        fullReport.put("threads", threads);
+        fullReport.put("settings", settings);
+        fullReport.put("throughputPerSecond", throughput);
+        fullReport.put("pool", poolUsage);
+        fullReport.put("endpoints", report);
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(reportFile.toFile(), fullReport);
+
+        assertEquals(Endpoint.values().length, report.size());
+        report.forEach((endpoint, summary) -> assertEquals(0, summary.errors(), endpoint + " returned errors"));
+        assertTrue(pinnedThreads.isEmpty(), () -> "Virtual threads pinned in application code: " + pinnedThreads);
+    }
+
+    /**
+     * One simulated user: logs in, loads the pantry, then issues a weighted mix of reads and writes.
+     */
+    private void runClient(String username) throws Exception {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String token = login(username);
+
+        // Clients may share a user, so only products this client created are ever deleted
+        List<Long> ownProductIds = new ArrayList<>();
+        List<Long> createdIds = new ArrayList<>();
+        for (JsonNode product : readJson(call(Endpoint.LIST, get(token, "/api/v1/products")))) {
+            ownProductIds.add(product.get("id").asLong());
+        }
+
+        for (int i = 0; i < requestsPerClient; i++) {
+            int roll = random.nextInt(100);
+            if (roll < 3) {
+                token = login(username);
+            } else if (roll < 35) {
+                call(Endpoint.LIST, get(token, "/api/v1/products"));
+            } else if (roll < 45) {
+                call(Endpoint.PAGE, get(token, "/api/v1/products?limit=20"));
+            } else if (roll < 65) {
+                ExpiryStatus status = ExpiryStatus.values()[random.nextInt(ExpiryStatus.values().length)];
+                call(Endpoint.BY_STATUS, get(token, "/api/v1/products/status/" + status));
+            } else if (roll < 75 && !ownProductIds.isEmpty()) {
+                call(Endpoint.GET, get(token, "/api/v1/products/" + pick(ownProductIds, random)));
+            } else if (roll < 88 || ownProductIds.isEmpty() || (roll >= 95 && createdIds.isEmpty())) {
+                JsonNode created = readJson(call(Endpoint.CREATE, send(token, "POST", "/api/v1/products", productBody(random))));
+                ownProductIds.add(created.get("id").asLong());
+                createdIds.add(created.get("id").asLong());
+            } else if (roll < 95) {
+                call(Endpoint.UPDATE, send(token, "PUT", "/api/v1/products/" + pick(ownProductIds, random), productBody(random)));
+            } else {
+                Long id = createdIds.remove(random.nextInt(createdIds.size()));
+                ownProductIds.remove(id);
+                call(Endpoint.DELETE, send(token, "DELETE", "/api/v1/products/" + id, null));
+            }
+        }
+    }
+
+    private String login(String username) throws Exception {
+        String body = objectMapper.writeValueAsString(Map.of("username", username, "password", LoadDataSeeder.PASSWORD));
+        return readJson(call(Endpoint.LOGIN, send(null, "POST", "/api/v1/auth/login", body))).get("token").asString();
+    }
+
+    private String productBody(ThreadLocalRandom random) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("name", "load-product");
+        body.put("expirationDate", LocalDate.now().plusDays(random.nextInt(60)).toString());
+        body.put("quantity", 1 + random.nextInt(5));
+        if (!data.categoryIds().isEmpty()) {
+            body.put("categoryId", pick(data.categoryIds(), random));
+        }
+        return objectMapper.writeValueAsString(body);
+    }
+
+    private HttpResponse<String> call(Endpoint endpoint, HttpRequest request) throws Exception {
+        long start = System.nanoTime();
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        boolean success = response.statusCode() / 100 == 2;
+        recorder.record(endpoint.label, System.nanoTime() - start, success);
+        assertTrue(success, () -> endpoint.label + " returned " + response.statusCode() + ": " + response.body());
+        return response;
+    }
+
+    private HttpRequest get(String token, String path) {
+        return send(token, "GET", path, null);
+    }
+
+    private HttpRequest send(String token, String method, String path, String body) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body))
+                .header("Accept", "application/json");
+        if (body != null) {
+            builder.header("Content-Type", "application/json");
+        }
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return builder.build();
+    }
+
+    private JsonNode readJson(HttpResponse<String> response) {
+        return objectMapper.readTree(response.body());
+    }
+
+    private static <T> T pick(List<T> values, ThreadLocalRandom random) {
+        return values.get(random.nextInt(values.size()));
+    }
+
+    private enum Endpoint {
+        LOGIN("POST /auth/login"),
+        LIST("GET /products"),
+        PAGE("GET /products?limit"),
+        BY_STATUS("GET /products/status/{status}"),
+        GET("GET /products/{id}"),
+        CREATE("POST /products"),
+        UPDATE("PUT /products/{id}"),
+        DELETE("DELETE /products/{id}");
+
+        private final String label;
+
+        Endpoint(String label) {
+            this.label = label;
+        }
+    }
+}
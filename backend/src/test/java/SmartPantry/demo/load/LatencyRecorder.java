@@ -0,0 +1,72 @@
+package SmartPantry.demo.load;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Collects per-endpoint response times from concurrent load clients and summarises them.
+ */
+class LatencyRecorder {
+
+    private final Map<String, Samples> samples = new ConcurrentHashMap<>();
+
+    void record(String endpoint, long nanos, boolean success) {
+        samples.computeIfAbsent(endpoint, key -> new Samples()).add(nanos, success);
+    }
+
+    /**
+     * Summarises every endpoint, ordered by name.
+     *
+     * @param wallClockNanos duration of the whole run, used for throughput
+     */
+    Map<String, Summary> summarise(long wallClockNanos) {
+        Map<String, Summary> summaries = new ConcurrentSkipListMap<>();
+        samples.forEach((endpoint, endpointSamples) -> summaries.put(endpoint, endpointSamples.summarise(wallClockNanos)));
+        return summaries;
+    }
+
+    record Summary(int requests, int errors, double p50Millis, double p95Millis, double p99Millis, double maxMillis,
+                   double throughputPerSecond) {
+
+        @Override
+        public String toString() {
+            return String.format("%7d req %5d err  p50 %8.2f ms  p95 %8.2f ms  p99 %8.2f ms  max %8.2f ms  %9.1f req/s",
+                    requests, errors, p50Millis, p95Millis, p99Millis, maxMillis, throughputPerSecond);
+        }
+    }
+
+    private static final class Samples {
+        private long[] nanos = new long[1024];
+        private int size;
+        private int errors;
+
+        synchronized void add(long value, boolean success) {
+            if (size == nanos.length) {
+                nanos = Arrays.copyOf(nanos, size * 2);
+            }
+            nanos[size++] = value;
+            if (!success) {
+                errors++;
+            }
+        }
+
+        synchronized Summary summarise(long wallClockNanos) {
+            long[] sorted = Arrays.copyOf(nanos, size);
+            Arrays.sort(sorted);
+            return new Summary(size, errors, percentile(sorted, 0.50), percentile(sorted, 0.95),
+                    percentile(sorted, 0.99), toMillis(sorted[sorted.length - 1]), size / (wallClockNanos / 1e9));
+        }
+
+        // Nearest-rank percentile
+        private static double percentile(long[] sorted, double quantile) {
+            int rank = (int) Math.ceil(quantile * sorted.length);
+            return toMillis(sorted[Math.max(0, rank - 1)]);
+        }
+
+        private static double toMillis(long nanos) {
+            return nanos / 1_000_000.0;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package SmartPantry.demo.load;
+
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.test.context.SpringBootTest;
+
+/**
+ * {@link ApiLoadTest} with the persistence settings from before they were tuned: open-session-in-view holding a
+ * connection for the whole request, no JDBC batching or statement ordering, unpadded IN lists, H2's default
+ * statement cache and Hikari's default connection timeout. Run next to it by the {@code load} profile to compare
+ * connection pool wait and throughput.
+ */
+@EnabledIfSystemProperty(named = "load.compare", matches = "true")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"auth.rate-limit.enabled=false", "auth.hashing.timeout-ms=60000", "load.settings=legacy",
+                "spring.jpa.open-in-view=true",
+                "spring.jpa.properties.hibernate.jdbc.batch_size=1",
+                "spring.jpa.properties.hibernate.order_inserts=false",
+                "spring.jpa.properties.hibernate.order_updates=false",
+                "spring.jpa.properties.hibernate.query.in_clause_parameter_padding=false",
+                "spring.datasource.url=jdbc:h2:mem:pantrydb",
+                "spring.datasource.hikari.connection-timeout=30000"})
+class LegacySettingsApiLoadTest extends ApiLoadTest {
+}
@@ -0,0 +1,15 @@
+package SmartPantry.demo.load;
+
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.test.context.SpringBootTest;
+
+/**
+ * {@link ApiLoadTest} on platform-thread Tomcat, run next to it by the {@code load} profile to compare the two
+ * execution modes.
+ */
+@EnabledIfSystemProperty(named = "load.compare", matches = "true")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"spring.threads.virtual.enabled=false", "auth.rate-limit.enabled=false",
+                "auth.hashing.timeout-ms=60000"})
+class PlatformThreadApiLoadTest extends ApiLoadTest {
+}
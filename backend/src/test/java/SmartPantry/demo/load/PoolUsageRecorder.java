@@ -0,0 +1,59 @@
+package SmartPantry.demo.load;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads the Hikari pool timers before and after a load run: how often requests took a connection, how long they
+ * waited for it and how long they held it. Totals are the difference between the two readings, summed over every
+ * pool, so seeding before the run is left out.
+ */
+class PoolUsageRecorder {
+
+    private final MeterRegistry registry;
+    private final Totals start;
+
+    PoolUsageRecorder(MeterRegistry registry) {
+        this.registry = registry;
+        this.start = totals();
+    }
+
+    Summary summarise() {
+        Totals end = totals();
+        long acquisitions = end.acquisitions - start.acquisitions;
+        long uses = end.uses - start.uses;
+        return new Summary(acquisitions,
+                acquisitions == 0 ? 0 : (end.waitNanos - start.waitNanos) / acquisitions / 1_000_000,
+                end.maxWaitNanos / 1_000_000,
+                uses == 0 ? 0 : (end.holdNanos - start.holdNanos) / uses / 1_000_000);
+    }
+
+    /**
+     * @param maxWaitMillis the longest wait in the timers' recent window, which the run dominates
+     */
+    record Summary(long acquisitions, double meanWaitMillis, double maxWaitMillis, double meanHoldMillis) {
+
+        @Override
+        public String toString() {
+            return String.format("%7d connections  wait mean %8.3f ms  max %8.2f ms  held mean %8.3f ms",
+                    acquisitions, meanWaitMillis, maxWaitMillis, meanHoldMillis);
+        }
+    }
+
+    private Totals totals() {
+        Collection<Timer> acquire = registry.find("hikaricp.connections.acquire").timers();
+        Collection<Timer> usage = registry.find("hikaricp.connections.usage").timers();
+        return new Totals(
+                acquire.stream().mapToLong(Timer::count).sum(),
+                acquire.stream().mapToDouble(timer -> timer.totalTime(TimeUnit.NANOSECONDS)).sum(),
+                acquire.stream().mapToDouble(timer -> timer.max(TimeUnit.NANOSECONDS)).max().orElse(0),
+                usage.stream().mapToLong(Timer::count).sum(),
+                usage.stream().mapToDouble(timer -> timer.totalTime(TimeUnit.NANOSECONDS)).sum());
+    }
+
+    private record Totals(long acquisitions, double waitNanos, double maxWaitNanos, long uses, double holdNanos) {
+    }
+}
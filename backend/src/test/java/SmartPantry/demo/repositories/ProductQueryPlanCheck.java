@@ -0,0 +1,174 @@
+package SmartPantry.demo.repositories;
+
+import SmartPantry.demo.dtos.requests.ProductFilter;
+import SmartPantry.demo.entities.Category;
+import SmartPantry.demo.entities.User;
+import SmartPantry.demo.support.ProductIds;
+import SmartPantry.demo.support.SqlCaptureInspector;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Runs every listing {@link ProductRepository} query, captures the SQL Hibernate generates
+ * for it and fails if the database plans a full scan of the products table.
+ * Subclasses provide the EXPLAIN dialect of a concrete database.
+ */
+@Transactional
+abstract class ProductQueryPlanCheck {
+
+    private static final int USERS = 20;
+    private static final int CATEGORIES = 5;
+    private static final int PRODUCTS_PER_USER = 100;
+
+    @Autowired
+    protected ProductRepository productRepository;
+
+    @Autowired
+    protected UserRepository userRepository;
+
+    @Autowired
+    protected CategoryRepository categoryRepository;
+
+    @Autowired
+    protected EntityManager entityManager;
+
+    @Autowired
+    protected JdbcTemplate jdbcTemplate;
+
+    protected final LocalDate today = LocalDate.now();
+    protected User user;
+    protected Category category;
+
+    /**
+     * Returns the plan of {@code sql} executed with {@code args} as a single string.
+     */
+    protected abstract String explain(String sql, Object... args);
+
+    /**
+     * Whether the plan reads the whole products table instead of using an index.
+     */
+    protected abstract boolean isFullScan(String plan);
+
+    @BeforeEach
+    void seedProducts() {
+        List<Category> categories = new ArrayList<>();
+        for (int c = 0; c < CATEGORIES; c++) {
+            categories.add(categoryRepository.save(Category.builder().name("Plan category " + c).build()));
+        }
+
+        List<User> owners = new ArrayList<>();
+        for (int u = 0; u < USERS; u++) {
+            owners.add(userRepository.save(User.builder()
+                    .username("plan-user-" + u)
+                    .email("plan-user-" + u + "@example.com")
+                    .password("secret")
+                    .build()));
+        }
+        // Every user gets the same products; the queries run as one of them, so the user index is selective
+        user = owners.get(0);
+        category = categories.get(0);
+        entityManager.flush();
+
+        // Products are inserted directly so expired rows bypass the request validation
+        List<Object[]> rows = new ArrayList<>();
+        for (User owner : owners) {
+            for (int i = 0; i < PRODUCTS_PER_USER; i++) {
+                rows.add(new Object[]{"Product " + i, Date.valueOf(today.plusDays((i % 60) - 30)),
+                        Date.valueOf(today), i % 3 == 0, owner.getId(), categories.get(i % CATEGORIES).getId()});
+            }
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO products (id, name, expiration_date, quantity, entry_date, notified, user_id, category_id, "
+                        + "expiry_status) VALUES (?, ?, ?, 1, ?, ?, ?, ?, 'GREEN')",
+                ProductIds.prepend(jdbcTemplate, rows));
+        entityManager.clear();
+    }
+
+    @Test
+    void findViewsByUserUsesAnIndex() {
+        assertIndexed(() -> productRepository.findViewsByUser(user), user.getId());
+    }
+
+    @Test
+    void findViewsByUserAndCategoryUsesAnIndex() {
+        assertIndexed(() -> productRepository.findViewsByUserAndCategory(user, category), user.getId(), category.getId());
+    }
+
+    @Test
+    void findViewsByUserAndExpirationDateBeforeUsesAnIndex() {
+        assertIndexed(() -> productRepository.findViewsByUserAndExpirationDateBefore(user, today),
+                user.getId(), Date.valueOf(today));
+    }
+
+    @Test
+    void findViewsByUserAndExpirationDateBetweenUsesAnIndex() {
+        assertIndexed(() -> productRepository.findViewsByUserAndExpirationDateBetween(user, today, today.plusDays(7)),
+                user.getId(), Date.valueOf(today), Date.valueOf(today.plusDays(7)));
+    }
+
+    @Test
+    void findViewsByUserAndExpirationDateAfterUsesAnIndex() {
+        assertIndexed(() -> productRepository.findViewsByUserAndExpirationDateAfter(user, today.plusDays(7)),
+                user.getId(), Date.valueOf(today.plusDays(7)));
+    }
+
+    @Test
+    void findViewsByUserChangedSinceUsesAnIndex() {
+        assertIndexed(() -> productRepository.findViewsByUserChangedSince(user, 0L), user.getId(), 0L);
+    }
+
+    @Test
+    void searchByNameUsesAnIndex() {
+        ProductFilter filter = ProductFilter.builder().name("product 1").build();
+        assertIndexed(() -> productRepository.search(user, filter, List.of(), today, Sort.by("expirationDate")),
+                user.getId(), "%product 1%");
+    }
+
+    @Test
+    void findDueForNotificationUsesAnIndex() {
+        assertIndexed(() -> productRepository.findDueForNotification(today, 0L, 0L, Limit.of(500)),
+                Date.valueOf(today), 0L, 0L, 0L, 500);
+    }
+
+    /**
+     * Executes the query, takes the SELECT Hibernate issued for it and checks its plan.
+     *
+     * @param query the repository call under test
+     * @param args the bind values of the generated SQL, in order
+     */
+    private void assertIndexed(Runnable query, Object... args) {
+        String plan = planOf(query, args);
+        assertFalse(isFullScan(plan), () -> "Full scan of products:\n" + plan);
+    }
+
+    /**
+     * Executes the query and returns the plan of the SELECT Hibernate issued for it.
+     *
+     * @param args the bind values of the generated SQL, in order
+     */
+    protected String planOf(Runnable query, Object... args) {
+        SqlCaptureInspector.clear();
+        query.run();
+
+        List<String> statements = SqlCaptureInspector.getStatements();
+        String sql = statements.stream()
+                .filter(statement -> statement.stripLeading().toLowerCase().startsWith("select"))
+                .reduce((first, second) -> second)
+                .orElseThrow(() -> new AssertionError("No SELECT captured, got " + statements));
+
+        return explain(sql, args);
+    }
+}
@@ -0,0 +1,25 @@
+package SmartPantry.demo.repositories;
+
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+
+import java.util.stream.Collectors;
+
+/**
+ * Query plan check against the embedded H2 database used by the dev profile.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "SmartPantry.demo.support.SqlCaptureInspector")
+class ProductQueryPlanH2Test extends ProductQueryPlanCheck {
+
+    @Override
+    protected String explain(String sql, Object... args) {
+        return jdbcTemplate.queryForList("EXPLAIN " + sql, String.class, args).stream()
+                .collect(Collectors.joining("\n"));
+    }
+
+    @Override
+    protected boolean isFullScan(String plan) {
+        // H2 annotates the chosen access path, e.g. /* PUBLIC.PRODUCTS.tableScan */
+        return plan.contains("PRODUCTS.tableScan");
+    }
+}
@@ -0,0 +1,76 @@
+package SmartPantry.demo.repositories;
+
+import SmartPantry.demo.dtos.requests.ProductFilter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.List;
+import java.util.StringJoiner;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Query plan check against the PostgreSQL database of the prod profile.
+ * Runs only when SMARTPANTRY_POSTGRES_URL points to a reachable database, e.g.
+ * {@code SMARTPANTRY_POSTGRES_URL=jdbc:postgresql://localhost:5432/smart_pantry}.
+ * Seeded rows are rolled back after each test.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "SmartPantry.demo.support.SqlCaptureInspector")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("prod")
+@EnabledIfEnvironmentVariable(named = "SMARTPANTRY_POSTGRES_URL", matches = ".+")
+class ProductQueryPlanPostgresTest extends ProductQueryPlanCheck {
+
+    @DynamicPropertySource
+    static void postgresProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> System.getenv("SMARTPANTRY_POSTGRES_URL"));
+        registry.add("spring.datasource.username", () -> System.getenv("SMARTPANTRY_POSTGRES_USER"));
+        registry.add("spring.datasource.password", () -> System.getenv("SMARTPANTRY_POSTGRES_PASSWORD"));
+    }
+
+    @Test
+    void searchByNameOrCategoryUsesTheTrigramIndex() {
+        ProductFilter filter = ProductFilter.builder().name("product 17").build();
+        String plan = planOf(() -> productRepository.search(user, filter, List.of(category.getId()), today,
+                Sort.by("name")), user.getId(), "%product 17%", category.getId());
+        assertTrue(plan.contains("idx_products_name_trgm"), () -> "Trigram index not used:\n" + plan);
+    }
+
+    @Override
+    protected String explain(String sql, Object... args) {
+        return jdbcTemplate.execute((ConnectionCallback<String>) connection -> {
+            // A freshly seeded table is tiny, so make the planner show which index it would use
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SET LOCAL enable_seqscan = off");
+            }
+            try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql)) {
+                for (int i = 0; i < args.length; i++) {
+                    statement.setObject(i + 1, args[i]);
+                }
+                StringJoiner plan = new StringJoiner("\n");
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        plan.add(resultSet.getString(1));
+                    }
+                }
+                return plan.toString();
+            }
+        });
+    }
+
+    @Override
+    protected boolean isFullScan(String plan) {
+        return plan.contains("Seq Scan on products");
+    }
+}
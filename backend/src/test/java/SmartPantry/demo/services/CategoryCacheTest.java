@@ -0,0 +1,136 @@
+package SmartPantry.demo.services;
+
+import SmartPantry.demo.entities.Category;
+import SmartPantry.demo.repositories.CategoryRepository;
+import SmartPantry.demo.repositories.CollectionVersionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CategoryCacheTest {
+
+    private CategoryRepository categoryRepository;
+    private CollectionVersionRepository collectionVersionRepository;
+    private LocalCacheInvalidationChannel channel;
+    private CategoryCache cache;
+
+    @BeforeEach
+    void setUp() {
+        categoryRepository = mock(CategoryRepository.class);
+        when(categoryRepository.findAll()).thenReturn(List.of(
+                Category.builder().id(2L).name("Produce").build(),
+                Category.builder().id(1L).name("Dairy").build()));
+        collectionVersionRepository = mock(CollectionVersionRepository.class);
+        when(collectionVersionRepository.findVersion(CollectionVersionService.CATEGORIES)).thenReturn(Optional.of(4L));
+        channel = new LocalCacheInvalidationChannel();
+        cache = new CategoryCache(categoryRepository, collectionVersionRepository, channel,
+                mock(PlatformTransactionManager.class));
+        cache.subscribe();
+    }
+
+    @Test
+    void loadsOnceAndServesSnapshotOrderedById() {
+        Map<Long, String> first = cache.getAll();
+        Map<Long, String> second = cache.getAll();
+
+        assertEquals(List.of(1L, 2L), List.copyOf(first.keySet()));
+        assertEquals("Dairy", cache.getName(1L));
+        assertTrue(cache.contains(2L));
+        assertFalse(cache.contains(3L));
+        assertNull(cache.getName(3L));
+        assertEquals(first, second);
+        assertEquals(4L, cache.getVersion());
+        verify(categoryRepository, times(1)).findAll();
+        assertEquals(1, cache.getMissCount());
+        assertEquals(6, cache.getHitCount());
+    }
+
+    @Test
+    void reloadsAfterAnInvalidationFromAnyNode() {
+        cache.getAll();
+
+        // Another cache instance on the same channel stands in for a second node
+        CategoryCache otherNode = new CategoryCache(categoryRepository, collectionVersionRepository, channel,
+                mock(PlatformTransactionManager.class));
+        otherNode.subscribe();
+        otherNode.invalidate();
+        when(categoryRepository.findAll()).thenReturn(List.of(Category.builder().id(3L).name("Bakery").build()));
+        when(collectionVersionRepository.findVersion(CollectionVersionService.CATEGORIES)).thenReturn(Optional.of(5L));
+
+        assertEquals(Map.of(3L, "Bakery"), cache.getAll());
+        assertEquals(5L, cache.getVersion());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    void neverServesASnapshotLoadedBeforeAnInvalidation() {
+        // The invalidation lands while the load is still reading the table
+        when(categoryRepository.findAll()).thenAnswer(invocation -> {
+            channel.publish(CategoryCache.CACHE_NAME);
+            return List.of(Category.builder().id(1L).name("Dairy").build());
+        }).thenReturn(List.of(Category.builder().id(1L).name("Milk & Cheese").build()));
+
+        assertEquals("Dairy", cache.getName(1L));
+        assertEquals("Milk & Cheese", cache.getName(1L));
+        assertEquals("Milk & Cheese", cache.getName(1L));
+        verify(categoryRepository, times(2)).findAll();
+    }
+
+    @Test
+    void reloadsOnceToResolveACategoryNewerThanTheSnapshot() {
+        cache.getAll();
+        when(categoryRepository.findAll()).thenReturn(List.of(
+                Category.builder().id(1L).name("Dairy").build(),
+                Category.builder().id(3L).name("Bakery").build()));
+
+        assertNull(cache.getName(3L));
+        assertEquals("Bakery", cache.resolveName(3L));
+        assertEquals("Bakery", cache.resolveName(3L));
+        verify(categoryRepository, times(2)).findAll();
+
+        // A dangling id does not reload the snapshot that was just reloaded, however often it is asked for
+        for (int i = 0; i < 5; i++) {
+            assertNull(cache.resolveName(4L));
+        }
+        verify(categoryRepository, times(2)).findAll();
+
+        // After an invalidation the first miss may reload again, once
+        cache.invalidate();
+        assertNull(cache.resolveName(4L));
+        assertNull(cache.resolveName(4L));
+        verify(categoryRepository, times(4)).findAll();
+    }
+
+    @Test
+    void doesNotKeepAReloadThatStillShowsTheInvalidatedVersionWhenReadsGoToAReplica() {
+        ReflectionTestUtils.setField(cache, "readsRouted", true);
+        ReflectionTestUtils.setField(cache, "replicaLagMillis", 60_000L);
+        cache.getAll();
+        cache.invalidate();
+
+        // A replica that has not applied the change yet returns the old rows at the old version
+        assertEquals("Produce", cache.getName(2L));
+        assertEquals("Produce", cache.getName(2L));
+        when(categoryRepository.findAll()).thenReturn(List.of(Category.builder().id(2L).name("Vegetables").build()));
+        when(collectionVersionRepository.findVersion(CollectionVersionService.CATEGORIES)).thenReturn(Optional.of(5L));
+
+        assertEquals("Vegetables", cache.getName(2L));
+        assertEquals("Vegetables", cache.getName(2L));
+        assertEquals(4, cache.getMissCount());
+        verify(categoryRepository, times(4)).findAll();
+    }
+}
@@ -0,0 +1,201 @@
+package SmartPantry.demo.services;
+
+import SmartPantry.demo.dtos.notifications.NotificationDigest;
+import SmartPantry.demo.entities.User;
+import SmartPantry.demo.repositories.ProductRepository;
+import SmartPantry.demo.repositories.UserRepository;
+import SmartPantry.demo.services.interfaces.INotificationSender;
+import SmartPantry.demo.support.ProductIds;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.stubbing.Answer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mockingDetails;
+
+@SpringBootTest(properties = {
+        "notifications.batch-size=500",
+        "notifications.dispatch.concurrency=3",
+        "notifications.dispatch.max-per-second=0",
+        "notifications.dispatch.max-attempts=3",
+        "notifications.dispatch.retry-backoff-ms=0"
+})
+class ExpiryNotificationServiceTest {
+
+    private static final int USERS = 10;
+    private static final int HEAVY_USER_PRODUCTS = 1_200;
+    private static final int DUE_PER_USER = 3;
+    private static final int LATER_PER_USER = 5;
+
+    @Autowired
+    private ExpiryNotificationService expiryNotificationService;
+
+    @MockitoSpyBean
+    private INotificationSender notificationSender;
+
+    @MockitoSpyBean
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final LocalDate today = LocalDate.of(2026, 1, 15);
+    private final List<NotificationDigest> delivered = new CopyOnWriteArrayList<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private final List<Long> userIds = new ArrayList<>();
+
+    @BeforeEach
+    void seedProducts() {
+        // The first user owns more due products than fit in one batch
+        List<Object[]> rows = new ArrayList<>();
+        for (int u = 0; u < USERS; u++) {
+            User user = userRepository.save(User.builder()
+                    .username("notify-" + u)
+                    .email("notify-" + u + "@example.com")
+                    .password("secret")
+                    .build());
+            userIds.add(user.getId());
+            int due = u == 0 ? HEAVY_USER_PRODUCTS : DUE_PER_USER;
+            for (int i = 0; i < due; i++) {
+                rows.add(new Object[]{"Due " + i, Date.valueOf(today.plusDays(i % 8 - 1)), Date.valueOf(today), user.getId()});
+            }
+            for (int i = 0; i < LATER_PER_USER; i++) {
+                rows.add(new Object[]{"Later " + i, Date.valueOf(today.plusDays(8 + i)), Date.valueOf(today), user.getId()});
+            }
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO products (id, name, expiration_date, quantity, entry_date, notified, user_id, expiry_status) "
+                        + "VALUES (?, ?, ?, 1, ?, FALSE, ?, 'GREEN')",
+                ProductIds.prepend(jdbcTemplate, rows));
+
+        doAnswer(invocation -> {
+            int current = inFlight.incrementAndGet();
+            maxInFlight.accumulateAndGet(current, Math::max);
+            try {
+                Thread.sleep(5);
+                invocation.callRealMethod();
+                delivered.add(invocation.getArgument(0));
+                return null;
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }).when(notificationSender).send(any());
+    }
+
+    @AfterEach
+    void cleanUp() {
+        productRepository.deleteAllInBatch();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void sendsOneDigestPerUserAndMarksOnlyTheirProducts() {
+        ExpiryNotificationService.Report report = expiryNotificationService.sendDueNotifications(today);
+
+        int dueProducts = HEAVY_USER_PRODUCTS + (USERS - 1) * DUE_PER_USER;
+        assertEquals(USERS, report.getDigestsSent());
+        assertEquals(0, report.getDigestsFailed());
+        assertEquals(dueProducts, report.getProductsNotified());
+        assertEquals(USERS, delivered.size());
+        assertEquals(USERS, delivered.stream().map(NotificationDigest::getIdempotencyKey).distinct().count());
+        delivered.forEach(digest -> assertTrue(
+                digest.getIdempotencyKey().matches("expiry-digest:\\d+:[-\\d]+:[0-9a-f]{64}"), digest.getIdempotencyKey()));
+
+        Map<Long, Integer> itemsPerUser = new ConcurrentHashMap<>();
+        delivered.forEach(digest -> itemsPerUser.merge(digest.getUserId(), digest.getItems().size(), Integer::sum));
+        assertEquals(HEAVY_USER_PRODUCTS, itemsPerUser.get(userIds.getFirst()));
+        for (Long userId : userIds.subList(1, USERS)) {
+            assertEquals(DUE_PER_USER, itemsPerUser.get(userId));
+        }
+
+        assertEquals(dueProducts, countNotified(true));
+        assertEquals(USERS * LATER_PER_USER, countNotified(false));
+        assertTrue(maxInFlight.get() <= 3, "At most 3 digests may be in flight, saw " + maxInFlight.get());
+
+        // Nothing is left for a second run on the same day
+        ExpiryNotificationService.Report secondRun = expiryNotificationService.sendDueNotifications(today);
+        assertEquals(0, secondRun.getDigestsSent());
+        assertEquals(USERS, delivered.size());
+    }
+
+    @Test
+    void retriesFailedSendsAndLeavesUndeliveredProductsPending() {
+        Long flakyUser = userIds.get(1);
+        Long brokenUser = userIds.get(2);
+        AtomicInteger flakyAttempts = new AtomicInteger();
+        doAnswer(invocation -> {
+            NotificationDigest digest = invocation.getArgument(0);
+            if (digest.getUserId().equals(brokenUser)
+                    || (digest.getUserId().equals(flakyUser) && flakyAttempts.incrementAndGet() < 3)) {
+                throw new IllegalStateException("Simulated mail server outage");
+            }
+            invocation.callRealMethod();
+            delivered.add(digest);
+            return null;
+        }).when(notificationSender).send(any());
+
+        ExpiryNotificationService.Report report = expiryNotificationService.sendDueNotifications(today);
+
+        // The flaky user got through on the last attempt; the broken one is retried on the next run
+        assertEquals(USERS - 1, report.getDigestsSent());
+        assertEquals(1, report.getDigestsFailed());
+        assertEquals(3, flakyAttempts.get());
+        assertEquals(DUE_PER_USER + LATER_PER_USER, countNotifiedFor(brokenUser, false));
+        assertEquals(LATER_PER_USER, countNotifiedFor(flakyUser, false));
+    }
+
+    @Test
+    void leavesADigestUnmarkedWhenOneOfItsChunksFails() {
+        Long heavyUser = userIds.getFirst();
+        // Spring Data repositories are interface proxies, so the spy forwards to them through its default answer
+        Answer<?> repository = mockingDetails(productRepository).getMockCreationSettings().getDefaultAnswer();
+        // The heavy user's 1200 products are marked in chunks of 500, 500 and 200; the last one fails
+        doAnswer(invocation -> {
+            if (invocation.<List<Long>>getArgument(0).size() == HEAVY_USER_PRODUCTS % 500) {
+                throw new IllegalStateException("Simulated connection loss");
+            }
+            return repository.answer(invocation);
+        }).when(productRepository).markNotified(anyCollection());
+
+        ExpiryNotificationService.Report report = expiryNotificationService.sendDueNotifications(today);
+
+        // The chunks already marked roll back with the failed one
+        assertEquals(USERS, report.getDigestsSent());
+        assertEquals((USERS - 1) * DUE_PER_USER, report.getProductsNotified());
+        assertEquals(HEAVY_USER_PRODUCTS + LATER_PER_USER, countNotifiedFor(heavyUser, false));
+    }
+
+    private int countNotified(boolean notified) {
+        Integer count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM products WHERE notified = ?", Integer.class, notified);
+        return count == null ? 0 : count;
+    }
+
+    private int countNotifiedFor(Long userId, boolean notified) {
+        Integer count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM products WHERE user_id = ? AND notified = ?", Integer.class, userId, notified);
+        return count == null ? 0 : count;
+    }
+}
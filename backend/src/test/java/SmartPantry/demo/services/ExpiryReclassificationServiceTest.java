@@ -0,0 +1,221 @@
+package SmartPantry.demo.services;
+
+import SmartPantry.demo.entities.User;
+import SmartPantry.demo.entities.enums.ExpiryStatus;
+import SmartPantry.demo.repositories.ProductRepository;
+import SmartPantry.demo.repositories.UserRepository;
+import SmartPantry.demo.support.ProductIds;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.stubbing.Answer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mockingDetails;
+
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "expiry.sweep.partition-size=2000",
+        "expiry.sweep.parallelism=4",
+        "expiry.sweep.retry-backoff-ms=0"
+})
+class ExpiryReclassificationServiceTest {
+
+    private static final int PRODUCT_COUNT = 20_000;
+    private static final int BATCH_SIZE = 1_000;
+
+    @Autowired
+    private ExpiryReclassificationService expiryReclassificationService;
+
+    @MockitoSpyBean
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private final LocalDate today = LocalDate.of(2026, 1, 15);
+
+    @BeforeEach
+    void seedProducts() {
+        User user = userRepository.save(User.builder()
+                .username("sweeper")
+                .email("sweeper@example.com")
+                .password("secret")
+                .build());
+
+        // Every product starts GREEN and expires somewhere in [today - 30, today + 30)
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < PRODUCT_COUNT; i++) {
+            LocalDate expirationDate = today.plusDays((i % 60) - 30);
+            batch.add(new Object[]{"Product " + i, Date.valueOf(expirationDate), Date.valueOf(today), user.getId()});
+            if (batch.size() == BATCH_SIZE) {
+                insert(batch);
+                batch.clear();
+            }
+        }
+        insert(batch);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        productRepository.deleteAllInBatch();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void reclassifiesLargeTableWithoutLoadingEntities() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        ExpiryReclassificationService.Report report =
+                expiryReclassificationService.reclassify(today, ExpiryReclassificationService.Mode.FULL);
+        List<ExpiryReclassificationService.Transition> transitions = report.getTransitions();
+
+        assertEquals(expectedCount(today, ExpiryStatus.RED), rowsMoved(transitions, ExpiryStatus.GREEN, ExpiryStatus.RED));
+        assertEquals(expectedCount(today, ExpiryStatus.YELLOW), rowsMoved(transitions, ExpiryStatus.GREEN, ExpiryStatus.YELLOW));
+        assertEquals(expectedCount(today, ExpiryStatus.RED), countByStatus(ExpiryStatus.RED));
+        assertEquals(expectedCount(today, ExpiryStatus.GREEN), countByStatus(ExpiryStatus.GREEN));
+
+        // Heap use is independent of the table size: one statement per transition and partition,
+        // plus the id bounds lookup, and no entities
+        assertEquals(10, report.getPartitions());
+        assertEquals(0, report.getFailedPartitions());
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals(2 + report.getPartitions() * 8, statistics.getPrepareStatementCount());
+
+        // The full sweep stamped a transition horizon on every product that is not yet RED
+        assertEquals(0, countMissingHorizon());
+
+        // A second pass on the same day finds nothing left to move or stamp
+        ExpiryReclassificationService.Report secondPass =
+                expiryReclassificationService.reclassify(today, ExpiryReclassificationService.Mode.FULL);
+        assertEquals(0, totalRows(secondPass));
+    }
+
+    @Test
+    void horizonSweepOnlyTouchesProductsCrossingABoundary() {
+        expiryReclassificationService.reclassify(today, ExpiryReclassificationService.Mode.FULL);
+
+        // Each day the horizon sweep moves exactly the products whose status changed since yesterday
+        for (int day = 1; day <= 10; day++) {
+            LocalDate date = today.plusDays(day);
+            ExpiryReclassificationService.Report report =
+                    expiryReclassificationService.reclassify(date, ExpiryReclassificationService.Mode.HORIZON);
+
+            assertEquals(expectedMoves(date.minusDays(1), date), totalRows(report));
+            for (ExpiryStatus status : ExpiryStatus.values()) {
+                assertEquals(expectedCount(date, status), countByStatus(status));
+            }
+        }
+
+        // A full sweep afterwards agrees with the incremental result
+        ExpiryReclassificationService.Report fullSweep =
+                expiryReclassificationService.reclassify(today.plusDays(10), ExpiryReclassificationService.Mode.FULL);
+        assertEquals(0, totalRows(fullSweep));
+    }
+
+    @Test
+    void failedPartitionIsRetriedOnItsOwn() {
+        Long minId = productRepository.findMinId();
+        // The spy forwards to the real repository through its default answer
+        Answer<?> realRepository = mockingDetails(productRepository).getMockCreationSettings().getDefaultAnswer();
+        doThrow(new TransientDataAccessResourceException("Simulated lock timeout"))
+                .doAnswer(realRepository)
+                .when(productRepository).markExpired(eq(minId), anyLong(), eq(ExpiryStatus.GREEN), any());
+
+        ExpiryReclassificationService.Report report =
+                expiryReclassificationService.reclassify(today, ExpiryReclassificationService.Mode.FULL);
+
+        // The first partition rolled back and succeeded on its second attempt
+        assertEquals(0, report.getFailedPartitions());
+        for (ExpiryStatus status : ExpiryStatus.values()) {
+            assertEquals(expectedCount(today, status), countByStatus(status));
+        }
+    }
+
+    private int expectedCount(LocalDate referenceDate, ExpiryStatus status) {
+        int count = 0;
+        for (int i = 0; i < PRODUCT_COUNT; i++) {
+            if (expectedStatus(i, referenceDate) == status) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private int expectedMoves(LocalDate previousDate, LocalDate referenceDate) {
+        int count = 0;
+        for (int i = 0; i < PRODUCT_COUNT; i++) {
+            if (expectedStatus(i, previousDate) != expectedStatus(i, referenceDate)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private ExpiryStatus expectedStatus(int index, LocalDate referenceDate) {
+        long daysRemaining = (index % 60) - 30 - (referenceDate.toEpochDay() - today.toEpochDay());
+        if (daysRemaining < 0) {
+            return ExpiryStatus.RED;
+        } else if (daysRemaining <= 7) {
+            return ExpiryStatus.YELLOW;
+        } else {
+            return ExpiryStatus.GREEN;
+        }
+    }
+
+    private void insert(List<Object[]> batch) {
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO products (id, name, expiration_date, quantity, entry_date, notified, user_id, expiry_status) "
+                        + "VALUES (?, ?, ?, 1, ?, FALSE, ?, 'GREEN')",
+                ProductIds.prepend(jdbcTemplate, batch));
+    }
+
+    private int rowsMoved(List<ExpiryReclassificationService.Transition> transitions,
+                          ExpiryStatus from, ExpiryStatus to) {
+        return transitions.stream()
+                .filter(transition -> transition.getFrom() == from && transition.getTo() == to)
+                .mapToInt(ExpiryReclassificationService.Transition::getRows)
+                .sum();
+    }
+
+    private int totalRows(ExpiryReclassificationService.Report report) {
+        return report.getTransitions().stream().mapToInt(ExpiryReclassificationService.Transition::getRows).sum();
+    }
+
+    private int countMissingHorizon() {
+        Integer count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM products WHERE next_transition_date IS NULL AND expiry_status <> 'RED'",
+                Integer.class);
+        return count == null ? 0 : count;
+    }
+
+    private int countByStatus(ExpiryStatus status) {
+        Integer count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM products WHERE expiry_status = ?", Integer.class, status.name());
+        return count == null ? 0 : count;
+    }
+}
@@ -0,0 +1,143 @@
+package SmartPantry.demo.services;
+
+import SmartPantry.demo.dtos.notifications.ProductEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProductEventBusTest {
+
+    private ProductEventBus bus;
+
+    @AfterEach
+    void shutDown() {
+        bus.shutdown();
+    }
+
+    @Test
+    void deliversEventsInOrderOnlyToTheOwnersStreams() throws Exception {
+        bus = new ProductEventBus(32, 60_000, 60_000);
+        RecordingEmitter owner = new RecordingEmitter(null);
+        RecordingEmitter otherUser = new RecordingEmitter(null);
+        bus.register(1L, owner);
+        bus.register(2L, otherUser);
+
+        for (long id = 1; id <= 20; id++) {
+            bus.publish(1L, event(id));
+        }
+
+        await(() -> owner.received.size() == 20);
+        for (int i = 0; i < 20; i++) {
+            assertEquals("1.0." + (i + 1) + ".0", owner.received.get(i));
+        }
+        assertTrue(otherUser.received.isEmpty());
+    }
+
+    @Test
+    void closesAStreamThatStopsReadingInsteadOfBufferingMore() throws Exception {
+        bus = new ProductEventBus(4, 60_000, 60_000);
+        CountDownLatch stalled = new CountDownLatch(1);
+        RecordingEmitter slow = new RecordingEmitter(stalled);
+        RecordingEmitter fast = new RecordingEmitter(null);
+        bus.register(1L, slow);
+        bus.register(1L, fast);
+
+        // The first event blocks the slow stream's sender, the next four fill its buffer and the sixth overflows it,
+        // while the fast stream keeps up with every one
+        bus.publish(1L, event(1));
+        await(() -> slow.sending);
+        for (long id = 2; id <= 6; id++) {
+            bus.publish(1L, event(id));
+            int delivered = (int) id;
+            await(() -> fast.received.size() == delivered);
+        }
+
+        assertEquals(1, bus.evictionCount());
+        assertEquals(1, bus.subscriberCount());
+        stalled.countDown();
+        await(() -> slow.completed);
+    }
+
+    @Test
+    void sendsHeartbeatsOnlyToStreamsThatWereIdleForAWholeInterval() throws Exception {
+        bus = new ProductEventBus(32, 200, 60_000);
+        RecordingEmitter idle = new RecordingEmitter(null);
+        RecordingEmitter busy = new RecordingEmitter(null);
+        bus.register(1L, idle);
+        bus.register(2L, busy);
+
+        Thread.sleep(250);
+        bus.publish(2L, event(1));
+        await(() -> busy.received.size() == 1);
+        bus.sendHeartbeats();
+
+        await(() -> idle.received.size() == 1);
+        assertEquals(List.of("heartbeat"), idle.received);
+        assertEquals(List.of("1.0.1.0"), busy.received);
+    }
+
+    private static ProductEvent event(long version) {
+        return ProductEvent.builder()
+                .type(ProductEvent.Type.UPDATED)
+                .version("1.0." + version + ".0")
+                .productId(version)
+                .build();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met within 5 seconds");
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Records the version of each event sent, or "heartbeat", optionally blocking every send on a latch.
+     */
+    private static class RecordingEmitter extends SseEmitter {
+        private final List<String> received = new CopyOnWriteArrayList<>();
+        private final CountDownLatch gate;
+        private volatile boolean sending;
+        private volatile boolean completed;
+
+        RecordingEmitter(CountDownLatch gate) {
+            this.gate = gate;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            sending = true;
+            if (gate != null) {
+                try {
+                    gate.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException(e);
+                }
+            }
+            for (DataWithMediaType part : builder.build()) {
+                if (part.getData() instanceof ProductEvent event) {
+                    received.add(event.getVersion());
+                } else if (part.getData() instanceof String text && text.startsWith(":heartbeat")) {
+                    received.add("heartbeat");
+                }
+            }
+        }
+
+        @Override
+        public void complete() {
+            completed = true;
+        }
+    }
+}
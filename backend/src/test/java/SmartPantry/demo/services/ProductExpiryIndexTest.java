@@ -0,0 +1,186 @@
+package SmartPantry.demo.services;
+
+import SmartPantry.demo.configs.JwtUtil;
+import SmartPantry.demo.entities.User;
+import SmartPantry.demo.repositories.ProductRepository;
+import SmartPantry.demo.repositories.UserRepository;
+import SmartPantry.demo.support.ProductIds;
+import SmartPantry.demo.support.QueryBudget;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "products.expiry-index.enabled=true",
+        "products.expiry-index.max-entries=40"
+})
+@AutoConfigureMockMvc
+class ProductExpiryIndexTest {
+
+    private static final int PRODUCTS_PER_USER = 25;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CategoryCache categoryCache;
+
+    @Autowired
+    private ProductExpiryIndex productExpiryIndex;
+
+    private final LocalDate today = LocalDate.now();
+    private final List<String> tokens = new ArrayList<>();
+    private final List<Long> userIds = new ArrayList<>();
+
+    @BeforeEach
+    void seedProducts() {
+        // Expiration dates run from 5 days ago to 19 days ahead: 5 RED, 8 YELLOW and 12 GREEN per user
+        List<Object[]> rows = new ArrayList<>();
+        for (int u = 0; u < 2; u++) {
+            User user = userRepository.save(User.builder()
+                    .username("indexed-" + u)
+                    .email("indexed-" + u + "@example.com")
+                    .password("secret")
+                    .build());
+            tokens.add("Bearer " + jwtUtil.generateToken(user.getId(), user.getUsername()));
+            userIds.add(user.getId());
+            jdbcTemplate.update("INSERT INTO collection_versions (name, version) VALUES (?, 0)", "products:" + user.getId());
+            for (int i = 0; i < PRODUCTS_PER_USER; i++) {
+                rows.add(new Object[]{"Indexed " + i, Date.valueOf(today.plusDays(i - 5)), Date.valueOf(today), user.getId()});
+            }
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO products (id, name, expiration_date, quantity, entry_date, notified, user_id, expiry_status) "
+                        + "VALUES (?, ?, ?, 1, ?, FALSE, ?, 'GREEN')",
+                ProductIds.prepend(jdbcTemplate, rows));
+        categoryCache.getAll();
+    }
+
+    @AfterEach
+    void cleanUp() {
+        productRepository.deleteAllInBatch();
+        userRepository.deleteAll();
+        jdbcTemplate.update("DELETE FROM product_tombstones");
+        jdbcTemplate.update("DELETE FROM collection_versions WHERE name LIKE 'products:%'");
+    }
+
+    @Test
+    void servesStatusQueriesFromTheIndexAndAppliesLocalWrites() throws Exception {
+        String token = tokens.getFirst();
+        assertEquals(8, statusNames(token, "YELLOW").size());
+
+        // Warm: only the collection version is read
+        assertEquals(5, statusNames(token, "RED", 1).size());
+        assertEquals(12, statusNames(token, "GREEN", 1).size());
+
+        String body = "{\"name\":\"Fresh\",\"expirationDate\":\"" + today.plusDays(20) + "\",\"quantity\":1}";
+        long created = readJson(mockMvc.perform(post("/api/v1/products").header(HttpHeaders.AUTHORIZATION, token)
+                        .contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString()).get("id").asLong();
+        assertTrue(statusNames(token, "GREEN", 1).contains("Fresh"));
+
+        body = "{\"name\":\"Soon\",\"expirationDate\":\"" + today.plusDays(2) + "\",\"quantity\":1}";
+        mockMvc.perform(put("/api/v1/products/{id}", created).header(HttpHeaders.AUTHORIZATION, token)
+                        .contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isOk());
+        assertFalse(statusNames(token, "GREEN", 1).contains("Fresh"));
+        List<String> yellow = statusNames(token, "YELLOW", 1);
+        assertEquals(9, yellow.size());
+        // Ordered by expiration date: today's product, tomorrow's, then the updated one
+        assertEquals("Soon", yellow.get(3));
+
+        mockMvc.perform(delete("/api/v1/products/{id}", created).header(HttpHeaders.AUTHORIZATION, token))
+                .andExpect(status().isNoContent());
+        assertEquals(8, statusNames(token, "YELLOW", 1).size());
+    }
+
+    @Test
+    void reloadsWhenAnotherNodeWrote() throws Exception {
+        String token = tokens.getFirst();
+        assertEquals(5, statusNames(token, "RED").size());
+
+        // A write that bypassed this node: the bumped version is all that tells the index
+        jdbcTemplate.update("UPDATE products SET expiration_date = ? WHERE user_id = ? AND name = 'Indexed 10'",
+                Date.valueOf(today.minusDays(1)), userIds.getFirst());
+        jdbcTemplate.update("UPDATE collection_versions SET version = version + 1 WHERE name = ?",
+                "products:" + userIds.getFirst());
+
+        assertEquals(6, statusNames(token, "RED", 2).size());
+        assertEquals(6, statusNames(token, "RED", 1).size());
+    }
+
+    @Test
+    void evictsTheLeastRecentlyQueriedUsers() throws Exception {
+        statusNames(tokens.get(0), "RED");
+        assertEquals(1, productExpiryIndex.getUserCount());
+
+        // Both users together are over the 40 product budget, so the colder one goes
+        statusNames(tokens.get(1), "RED");
+        assertEquals(1, productExpiryIndex.getUserCount());
+        assertEquals(PRODUCTS_PER_USER, productExpiryIndex.getEntryCount());
+
+        // The evicted user is reloaded on demand
+        assertEquals(5, statusNames(tokens.get(0), "RED", 2).size());
+    }
+
+    private List<String> statusNames(String token, String status) throws Exception {
+        return names(mockMvc.perform(get("/api/v1/products/status/{status}", status)
+                        .header(HttpHeaders.AUTHORIZATION, token))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+    }
+
+    private List<String> statusNames(String token, String status, int budget) throws Exception {
+        return names(QueryBudget.assertWithin(mockMvc, budget, get("/api/v1/products/status/{status}", status)
+                .header(HttpHeaders.AUTHORIZATION, token)).getResponse().getContentAsString());
+    }
+
+    private List<String> names(String json) {
+        List<String> names = new ArrayList<>();
+        readJson(json).forEach(product -> names.add(product.get("name").asString()));
+        return names;
+    }
+
+    private JsonNode readJson(String json) {
+        return objectMapper.readTree(json);
+    }
+}
@@ -0,0 +1,78 @@
+package SmartPantry.demo.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBucketRateLimiterTest {
+
+    private final AtomicLong clock = new AtomicLong(1_000);
+
+    @Test
+    void allowsABurstThenRefillsOneTokenAtATime() {
+        // 6 per minute: one token every 10 seconds
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(3, 6, 60_000, clock::get);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, limiter.tryAcquire("alice"));
+        }
+        assertEquals(TimeUnit.SECONDS.toNanos(10), limiter.tryAcquire("alice"));
+        // Other keys have their own bucket
+        assertEquals(0, limiter.tryAcquire("bob"));
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(4));
+        assertEquals(TimeUnit.SECONDS.toNanos(6), limiter.tryAcquire("alice"));
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(6));
+        assertEquals(0, limiter.tryAcquire("alice"));
+        assertTrue(limiter.tryAcquire("alice") > 0);
+
+        // A long pause refills the bucket to capacity, never beyond it
+        clock.addAndGet(TimeUnit.MINUTES.toNanos(5));
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, limiter.tryAcquire("alice"));
+        }
+        assertTrue(limiter.tryAcquire("alice") > 0);
+    }
+
+    @Test
+    void evictsOnlyBucketsThatHaveBeenFullForTheIdleTimeout() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(2, 60, 30_000, clock::get);
+        limiter.tryAcquire("quiet");
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(20));
+        limiter.tryAcquire("busy");
+        limiter.tryAcquire("busy");
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(12));
+        assertEquals(1, limiter.evictIdle());
+        assertEquals(1, limiter.size());
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(30));
+        assertEquals(1, limiter.evictIdle());
+        assertEquals(0, limiter.size());
+    }
+
+    @Test
+    void neverHandsOutMoreThanTheCapacityUnderContention() throws Exception {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(50, 1, 60_000, clock::get);
+        AtomicInteger granted = new AtomicInteger();
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            for (int i = 0; i < 1_000; i++) {
+                executor.execute(() -> {
+                    if (limiter.tryAcquire("shared") == 0) {
+                        granted.incrementAndGet();
+                    }
+                });
+            }
+        }
+
+        assertEquals(50, granted.get());
+    }
+}
@@ -0,0 +1,20 @@
+package SmartPantry.demo.support;
+
+import SmartPantry.demo.services.CategoryCache;
+import SmartPantry.demo.services.CollectionVersionService;
+
+/**
+ * Stands in for CategoryService after a fixture changed categories straight through JDBC.
+ * The category version is bumped before the cache is dropped, as a real write does, so with reads routed to a
+ * replica the reload is not mistaken for one from a lagging replica and is cached as usual.
+ */
+public final class CategoryFixtures {
+
+    private CategoryFixtures() {
+    }
+
+    public static void changed(CollectionVersionService collectionVersionService, CategoryCache categoryCache) {
+        collectionVersionService.bump(CollectionVersionService.CATEGORIES);
+        categoryCache.invalidate();
+    }
+}
@@ -0,0 +1,121 @@
+package SmartPantry.demo.support;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk-seeds users, categories and products straight through JDBC so large data sets load in seconds.
+ * Every seeded row is prefixed with {@code load-} and removed again by {@link #clear()}.
+ */
+public class LoadDataSeeder {
+
+    public static final String PASSWORD = "load-password";
+
+    private static final int BATCH_SIZE = 1_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PasswordEncoder passwordEncoder;
+
+    public LoadDataSeeder(JdbcTemplate jdbcTemplate, PasswordEncoder passwordEncoder) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.passwordEncoder = passwordEncoder;
+    }
+
+    public record SeededData(Map<String, Long> userIds, List<Long> categoryIds, long products) {
+    }
+
+    /**
+     * Seeds {@code users} users, each owning {@code productsPerUser} products spread over
+     * {@code categories} shared categories and expiring between 10 days ago and 50 days from now.
+     */
+    public SeededData seed(int users, int productsPerUser, int categories) {
+        // One real hash for everyone: logins still pay the full BCrypt cost, seeding does not
+        String passwordHash = passwordEncoder.encode(PASSWORD);
+
+        List<Object[]> userRows = new ArrayList<>(users);
+        for (int i = 0; i < users; i++) {
+            userRows.add(new Object[]{"load-user-" + i, "load-user-" + i + "@example.com", passwordHash});
+        }
+        batchInsert("INSERT INTO users (username, email, password, enabled) VALUES (?, ?, ?, TRUE)", userRows);
+
+        List<Object[]> categoryRows = new ArrayList<>(categories);
+        for (int i = 0; i < categories; i++) {
+            categoryRows.add(new Object[]{"load-category-" + i});
+        }
+        batchInsert("INSERT INTO categories (name) VALUES (?)", categoryRows);
+
+        Map<String, Long> userIds = jdbcTemplate.query(
+                        "SELECT id, username FROM users WHERE username LIKE 'load-user-%'",
+                        (rs, rowNum) -> Map.entry(rs.getString("username"), rs.getLong("id")))
+                .stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+        List<Long> categoryIds = jdbcTemplate.queryForList(
+                "SELECT id FROM categories WHERE name LIKE 'load-category-%' ORDER BY id", Long.class);
+
+        LocalDate today = LocalDate.now();
+        List<Object[]> productRows = new ArrayList<>(BATCH_SIZE);
+        long products = 0;
+        for (Long userId : userIds.values()) {
+            for (int i = 0; i < productsPerUser; i++) {
+                LocalDate expirationDate = today.plusDays(i % 60 - 10);
+                Long categoryId = categoryIds.isEmpty() ? null : categoryIds.get(i % categoryIds.size());
+                productRows.add(productRow("load-product-" + i, expirationDate, today, userId, categoryId));
+                if (productRows.size() == BATCH_SIZE) {
+                    products += insertProducts(productRows);
+                    productRows.clear();
+                }
+            }
+        }
+        products += insertProducts(productRows);
+
+        return new SeededData(userIds, categoryIds, products);
+    }
+
+    /**
+     * Removes everything {@link #seed} inserted, plus any products created against seeded users.
+     */
+    public void clear() {
+        jdbcTemplate.update("DELETE FROM products WHERE user_id IN (SELECT id FROM users WHERE username LIKE 'load-user-%')");
+        jdbcTemplate.update("DELETE FROM users WHERE username LIKE 'load-user-%'");
+        jdbcTemplate.update("DELETE FROM categories WHERE name LIKE 'load-category-%'");
+    }
+
+    private Object[] productRow(String name, LocalDate expirationDate, LocalDate today, Long userId, Long categoryId) {
+        // Same classification ProductService applies on create
+        long daysRemaining = expirationDate.toEpochDay() - today.toEpochDay();
+        String status;
+        LocalDate nextTransitionDate;
+        if (daysRemaining < 0) {
+            status = "RED";
+            nextTransitionDate = null;
+        } else if (daysRemaining <= 7) {
+            status = "YELLOW";
+            nextTransitionDate = expirationDate.plusDays(1);
+        } else {
+            status = "GREEN";
+            nextTransitionDate = expirationDate.minusDays(7);
+        }
+        return new Object[]{name, Date.valueOf(expirationDate), 1, Date.valueOf(today), userId, categoryId, status,
+                nextTransitionDate == null ? null : Date.valueOf(nextTransitionDate)};
+    }
+
+    private int insertProducts(List<Object[]> rows) {
+        batchInsert("INSERT INTO products (id, name, expiration_date, quantity, entry_date, notified, user_id, category_id, "
+                + "expiry_status, next_transition_date) VALUES (?, ?, ?, ?, ?, FALSE, ?, ?, ?, ?)",
+                ProductIds.prepend(jdbcTemplate, rows));
+        return rows.size();
+    }
+
+    private void batchInsert(String sql, List<Object[]> rows) {
+        for (int from = 0; from < rows.size(); from += BATCH_SIZE) {
+            jdbcTemplate.batchUpdate(sql, rows.subList(from, Math.min(rows.size(), from + BATCH_SIZE)));
+        }
+    }
+}
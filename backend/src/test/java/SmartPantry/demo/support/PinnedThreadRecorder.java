@@ -0,0 +1,66 @@
+package SmartPantry.demo.support;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Records {@code jdk.VirtualThreadPinned} JFR events while open, so tests can assert that application
+ * code never blocks a virtual thread while holding its carrier.
+ */
+public class PinnedThreadRecorder implements AutoCloseable {
+
+    private static final String APPLICATION_PACKAGE = "SmartPantry.demo.";
+
+    private final Recording recording = new Recording();
+
+    public PinnedThreadRecorder() {
+        recording.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO).withStackTrace();
+        recording.start();
+    }
+
+    /**
+     * Stops recording and returns a one-line description of every pinning event whose stack passes
+     * through application code.
+     */
+    public List<String> stopAndCollectApplicationPinning() throws IOException {
+        recording.stop();
+        Path dump = Files.createTempFile("pinned-threads", ".jfr");
+        try {
+            recording.dump(dump);
+            return RecordingFile.readAllEvents(dump).stream()
+                    .filter(PinnedThreadRecorder::touchesApplicationCode)
+                    .map(event -> event.getDuration().toMillis() + " ms pinned at " + event.getStackTrace().getFrames().stream()
+                            .limit(8)
+                            .map(frame -> frame.getMethod().getType().getName() + "." + frame.getMethod().getName())
+                            .toList())
+                    .toList();
+        } finally {
+            Files.deleteIfExists(dump);
+        }
+    }
+
+    @Override
+    public void close() {
+        recording.close();
+    }
+
+    private static boolean touchesApplicationCode(RecordedEvent event) {
+        if (event.getStackTrace() == null) {
+            return false;
+        }
+        for (RecordedFrame frame : event.getStackTrace().getFrames()) {
+            if (frame.getMethod().getType().getName().startsWith(APPLICATION_PACKAGE)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
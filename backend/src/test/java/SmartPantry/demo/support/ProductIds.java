@@ -0,0 +1,53 @@
+package SmartPantry.demo.support;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reserves product ids for rows seeded straight through JDBC.
+ * Blocks are taken from {@code products_seq} exactly as Hibernate's pooled optimizer takes them, so seeded
+ * ids are dense and never collide with ids the application assigns afterwards.
+ */
+public final class ProductIds {
+
+    private static final int ALLOCATION_SIZE = 50;
+
+    private ProductIds() {
+    }
+
+    public static List<Long> reserve(JdbcTemplate jdbcTemplate, int count) {
+        String database = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        String nextValue = "PostgreSQL".equals(database)
+                ? "SELECT nextval('products_seq')"
+                : "SELECT NEXT VALUE FOR products_seq";
+
+        List<Long> ids = new ArrayList<>(count);
+        while (ids.size() < count) {
+            // Each sequence value v owns the block (v - 50, v]
+            long hi = jdbcTemplate.queryForObject(nextValue, Long.class);
+            for (long id = Math.max(1, hi - ALLOCATION_SIZE + 1); id <= hi && ids.size() < count; id++) {
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Returns the rows with a freshly reserved id prepended to each, for an {@code INSERT} that lists {@code id} first.
+     */
+    public static List<Object[]> prepend(JdbcTemplate jdbcTemplate, List<Object[]> rows) {
+        List<Long> ids = reserve(jdbcTemplate, rows.size());
+        List<Object[]> withIds = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            Object[] row = new Object[rows.get(i).length + 1];
+            row[0] = ids.get(i);
+            System.arraycopy(rows.get(i), 0, row, 1, rows.get(i).length);
+            withIds.add(row);
+        }
+        return withIds;
+    }
+}
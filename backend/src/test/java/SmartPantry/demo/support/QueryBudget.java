@@ -0,0 +1,41 @@
+package SmartPantry.demo.support;
+
+import SmartPantry.demo.configs.SqlStatementCountingFilter;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Asserts how many SQL statements a request may issue, using the per-request count recorded by
+ * {@link SqlStatementCountingFilter}. A budget is an upper bound, so amortized work such as
+ * sequence block reservations does not make it flaky, while an N+1 regression blows through it.
+ */
+public final class QueryBudget {
+
+    private QueryBudget() {
+    }
+
+    /**
+     * Performs the request and fails if it did not succeed or issued more than {@code budget} statements.
+     *
+     * @return the result, for further assertions
+     */
+    public static MvcResult assertWithin(MockMvc mockMvc, int budget, RequestBuilder request) throws Exception {
+        MvcResult result = mockMvc.perform(request).andReturn();
+        int status = result.getResponse().getStatus();
+        assertTrue(status < 300, () -> "Unexpected status " + status + " for " + describe(result));
+
+        Integer statements = (Integer) result.getRequest().getAttribute(SqlStatementCountingFilter.STATEMENT_COUNT_ATTRIBUTE);
+        assertNotNull(statements, "No statement count recorded; is the counting filter registered?");
+        assertTrue(statements <= budget, () -> describe(result) + " issued " + statements
+                + " SQL statements, over its budget of " + budget);
+        return result;
+    }
+
+    private static String describe(MvcResult result) {
+        return result.getRequest().getMethod() + " " + result.getRequest().getRequestURI();
+    }
+}
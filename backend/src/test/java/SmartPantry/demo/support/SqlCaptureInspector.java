@@ -0,0 +1,36 @@
+package SmartPantry.demo.support;
+
+import SmartPantry.demo.configs.SqlStatementCounter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hibernate statement inspector that records every SQL statement Hibernate prepares,
+ * so tests can inspect the exact SQL generated for repository methods. Per-request counting
+ * keeps working while it replaces the application's inspector.
+ */
+public class SqlCaptureInspector extends SqlStatementCounter {
+
+    private static final List<String> statements = new ArrayList<>();
+
+    @Override
+    public String inspect(String sql) {
+        synchronized (statements) {
+            statements.add(sql);
+        }
+        return super.inspect(sql);
+    }
+
+    public static void clear() {
+        synchronized (statements) {
+            statements.clear();
+        }
+    }
+
+    public static List<String> getStatements() {
+        synchronized (statements) {
+            return List.copyOf(statements);
+        }
+    }
+}
@@ -16,6 +16,38 @@ export interface Product {
   categoryId: number;
   expiryStatus: 'GREEN' | 'YELLOW' | 'RED';
   daysRemaining: number;
+  lockVersion: number;
+}
+
+export interface ProductFilter {
+  status?: 'GREEN' | 'YELLOW' | 'RED';
+  categoryId?: number;
+  expiresFrom?: string;
+  expiresTo?: string;
+  name?: string;
+  nameMatch?: 'CONTAINS' | 'PREFIX';
+  sort?: string;
+}
+
+export interface StatusSummary {
+  status: 'GREEN' | 'YELLOW' | 'RED';
+  count: number;
+  quantity: number;
+}
+
+export interface CategorySummary {
+  categoryId: number | null;
+  categoryName: string | null;
+  count: number;
+  quantity: number;
+}
+
+export interface ProductSummary {
+  totalCount: number;
+  totalQuantity: number;
+  byStatus: StatusSummary[];
+  byCategory: CategorySummary[];
+  expiringNext: Product[];
 }
 
 export interface ProductRequest {
@@ -23,4 +55,13 @@ export interface ProductRequest {
   quantity: number;
   expirationDate: string;
   categoryId: number;
+  // Set on edits so the server rejects them if someone else changed the product in the meantime
+  lockVersion?: number;
+}
+
+export interface ProductEvent {
+  type: 'READY' | 'CREATED' | 'UPDATED' | 'DELETED' | 'RESYNC';
+  version: string | null;
+  productId: number | null;
+  product: Product | null;
 }
@@ -1,8 +1,11 @@
 import { Injectable } from '@angular/core';
-import { HttpClient } from '@angular/common/http';
-import { Product, ProductRequest, Category } from '../models/pantry.model';
+import { HttpClient, HttpParams } from '@angular/common/http';
+import { Product, ProductEvent, ProductFilter, ProductRequest, ProductSummary, Category } from '../models/pantry.model';
 import { Observable } from 'rxjs';
 import { environment } from '../../../environments/environment';
+import { AuthService } from './auth.service';
+
+const EVENT_TYPES = ['ready', 'created', 'updated', 'deleted', 'resync'];
 
 @Injectable({
   providedIn: 'root'
@@ -10,10 +13,38 @@ import { environment } from '../../../environments/environment';
 export class ProductService {
   private readonly baseUrl = environment.apiUrl;
 
-  constructor(private http: HttpClient) {}
+  constructor(private http: HttpClient, private authService: AuthService) {}
+
+  // Server-sent product changes. EventSource reconnects by itself after a drop or a server-side close,
+  // and every reconnect starts with a READY event, so subscribers resync on it.
+  // It cannot send headers, so the token travels as a query parameter.
+  events(): Observable<ProductEvent> {
+    return new Observable<ProductEvent>(subscriber => {
+      const token = this.authService.getToken();
+      if (!token) {
+        subscriber.complete();
+        return;
+      }
+      const source = new EventSource(
+        `${this.baseUrl}/products/events?access_token=${encodeURIComponent(token)}`);
+      const listener = (message: MessageEvent) => subscriber.next(JSON.parse(message.data));
+      EVENT_TYPES.forEach(type => source.addEventListener(type, listener));
+      return () => source.close();
+    });
+  }
+
+  getProducts(filter: ProductFilter = {}): Observable<Product[]> {
+    let params = new HttpParams();
+    for (const [key, value] of Object.entries(filter)) {
+      if (value !== undefined && value !== null && value !== '') {
+        params = params.set(key, value);
+      }
+    }
+    return this.http.get<Product[]>(`${this.baseUrl}/products`, { params });
+  }
 
-  getProducts(): Observable<Product[]> {
-    return this.http.get<Product[]>(`${this.baseUrl}/products`);
+  getSummary(upcoming = 5): Observable<ProductSummary> {
+    return this.http.get<ProductSummary>(`${this.baseUrl}/products/summary`, { params: { upcoming } });
   }
 
   getProductById(id: number): Observable<Product> {
@@ -28,6 +59,15 @@ export class ProductService {
     return this.http.put<Product>(`${this.baseUrl}/products/${id}`, product);
   }
 
+  // Resolves to null when the last of the product was consumed and it was deleted
+  consumeProduct(id: number, amount = 1): Observable<Product | null> {
+    return this.http.patch<Product | null>(`${this.baseUrl}/products/${id}/consume`, { amount });
+  }
+
+  restockProduct(id: number, amount = 1): Observable<Product> {
+    return this.http.patch<Product>(`${this.baseUrl}/products/${id}/restock`, { amount });
+  }
+
   deleteProduct(id: number): Observable<void> {
     return this.http.delete<void>(`${this.baseUrl}/products/${id}`);
   }
@@ -5,14 +5,14 @@ import { trigger, transition, style, animate, query, stagger } from '@angular/an
 import { AuthService } from '../../../core/services/auth.service';
 import { ProductService } from '../../../core/services/product.service';
 import { NotificationService } from '../../../core/services/notification.service';
-import { Product, Category } from '../../../core/models/pantry.model';
+import { Product, ProductSummary, Category } from '../../../core/models/pantry.model';
 import { ButtonComponent } from '../../../shared/components/button/button.component';
 import { CardComponent } from '../../../shared/components/card/card.component';
 import { InputComponent } from '../../../shared/components/input/input.component';
 import { SidePanelComponent } from '../../../shared/components/side-panel/side-panel.component';
 import { ConfirmModalComponent } from '../../../shared/components/confirm-modal/confirm-modal.component';
 import { extractErrorMessage } from '../../../core/models/error.model';
-import { debounceTime, distinctUntilChanged } from 'rxjs';
+import { Subscription, debounceTime, delay, distinctUntilChanged, map, mergeMap, of } from 'rxjs';
 import { takeUntilDestroyed } from '@angular/core/rxjs-interop';
 
 @Component({
@@ -50,22 +50,17 @@ export class DashboardComponent implements OnInit {
   private destroyRef = inject(DestroyRef);
 
   products = signal<Product[]>([]);
+  summary = signal<ProductSummary | null>(null);
   categories = signal<Category[]>([]);
   isLoading = signal(true);
   searchTerm = signal('');
   searchControl = new FormControl('');
+  private productsRequest?: Subscription;
   
-  filteredProducts = computed(() => {
-    const term = this.searchTerm().toLowerCase();
-    const products = this.products();
-    return products.filter(p =>
-      p.name.toLowerCase().includes(term) ||
-      p.categoryName.toLowerCase().includes(term)
-    );
-  });
-
   expiringSoonCount = computed(() =>
-    this.products().filter(p => p.expiryStatus !== 'GREEN').length
+    (this.summary()?.byStatus ?? [])
+      .filter(s => s.status !== 'GREEN')
+      .reduce((total, s) => total + s.count, 0)
   );
 
   isPanelOpen = signal(false);
@@ -99,6 +94,24 @@ export class DashboardComponent implements OnInit {
   ngOnInit() {
     this.loadData();
     this.setupSearch();
+    this.listenForChanges();
+  }
+
+  // Changes made in other tabs or devices, and the nightly status flip, arrive as server-sent events.
+  // Bursts are coalesced into one reload, which the server answers with 304 when nothing changed.
+  // A RESYNC goes to every open dashboard at once, so each waits a random few seconds first.
+  private listenForChanges() {
+    this.productService.events().pipe(
+      mergeMap(event => event.type === 'RESYNC'
+        ? of(event).pipe(delay(Math.random() * 10000))
+        : of(event)),
+      map(() => undefined),
+      debounceTime(250),
+      takeUntilDestroyed(this.destroyRef)
+    ).subscribe(() => {
+      this.loadProducts();
+      this.loadSummary();
+    });
   }
 
   private setupSearch() {
@@ -108,21 +121,14 @@ export class DashboardComponent implements OnInit {
       takeUntilDestroyed(this.destroyRef)
     ).subscribe(value => {
       this.searchTerm.set(value || '');
+      this.loadProducts();
     });
   }
 
   loadData() {
     this.isLoading.set(true);
-    this.productService.getProducts().subscribe({
-      next: (products) => {
-        this.products.set(products);
-        this.isLoading.set(false);
-      },
-      error: (err) => {
-        this.notificationService.error(extractErrorMessage(err) || 'Failed to sync inventory.');
-        this.isLoading.set(false);
-      }
-    });
+    this.loadProducts();
+    this.loadSummary();
 
     this.isLoadingCategories.set(true);
     this.productService.getCategories().subscribe({
@@ -209,8 +215,10 @@ export class DashboardComponent implements OnInit {
   saveProduct() {
     if (this.productForm.valid) {
       this.isSaving.set(true);
-      const productData = this.productForm.value;
       const editing = this.editingProduct();
+      const productData = editing
+        ? { ...this.productForm.value, lockVersion: editing.lockVersion }
+        : this.productForm.value;
 
       const obs = editing
         ? this.productService.updateProduct(editing.id, productData)
@@ -233,6 +241,62 @@ export class DashboardComponent implements OnInit {
     }
   }
 
+  // The search box filters on the server, so only matching products are downloaded
+  private loadProducts() {
+    this.productsRequest?.unsubscribe();
+    this.productsRequest = this.productService.getProducts({ name: this.searchTerm().trim() }).subscribe({
+      next: (products) => {
+        this.products.set(products);
+        this.isLoading.set(false);
+      },
+      error: (err) => {
+        this.notificationService.error(extractErrorMessage(err) || 'Failed to sync inventory.');
+        this.isLoading.set(false);
+      }
+    });
+  }
+
+  private loadSummary() {
+    this.productService.getSummary().subscribe({
+      next: (summary) => this.summary.set(summary),
+      error: (err) => {
+        this.notificationService.error(extractErrorMessage(err) || 'Failed to load pantry summary.');
+      }
+    });
+  }
+
+  // Quantity changes are applied atomically on the server, so taps from several devices all count
+  consumeOne(product: Product) {
+    this.productService.consumeProduct(product.id).subscribe({
+      next: (updated) => {
+        this.products.set(updated
+          ? this.products().map(p => p.id === updated.id ? updated : p)
+          : this.products().filter(p => p.id !== product.id));
+        if (!updated) {
+          this.notificationService.success(`Used up the last of "${product.name}".`);
+        }
+        this.loadSummary();
+      },
+      error: (err) => {
+        this.notificationService.error(extractErrorMessage(err) || 'Failed to update quantity.');
+        this.loadProducts();
+      }
+    });
+  }
+
+  restockOne(product: Product) {
+    this.productService.restockProduct(product.id).subscribe({
+      next: (updated) => {
+        this.products.set(this.products().map(p => p.id === updated.id ? updated : p));
+        this.loadSummary();
+      },
+      error: (err) => {
+        this.notificationService.error(extractErrorMessage(err) || 'Failed to update quantity.');
+        this.loadProducts();
+      }
+    });
+  }
+
   onRequestDelete(id: number) {
     this.productToDeleteId.set(id);
     this.isDeleteModalOpen.set(true);
@@ -253,6 +317,7 @@ export class DashboardComponent implements OnInit {
           this.isDeleting.set(false);
           this.notificationService.success('Product deleted successfully.');
           this.closeDeleteModal();
+          this.loadSummary();
         },
         error: (err) => {
           this.products.set(currentProducts);